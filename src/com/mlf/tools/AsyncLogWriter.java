@@ -0,0 +1,499 @@
+package com.mlf.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Escritor del log asincrónico. Los hilos que logean dejan las líneas ya formateadas y codificadas en una cola
+ * acotada sin bloqueos y un único hilo las escribe por lotes en el archivo (mediante FileChannel) y en la consola. Al terminar
+ * la JVM se escriben las líneas pendientes
+ * @author Mario
+ */
+final class AsyncLogWriter implements Runnable
+{
+	private static final int BATCH = 256;					// Líneas por lote
+	private static final int BUFFER_SIZE = 64*1024;		// Bytes del buffer de escritura
+	private static final long PARK_NANOS = 10000000L;		// Espera del hilo escritor con la cola vacía
+	private static final long BLOCK_NANOS = 100000L;		// Espera de los hilos que logean con la cola llena
+
+	private final Ring ring;
+	private final ELogOverflow overflow;
+	private final Formatter formatter;
+	private final String logFile;
+	private final LogRotator rotator;
+	private final PrintStream console;
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicInteger offering = new AtomicInteger();	// Hilos encolando, el escritor no termina hasta que salgan
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private final Thread thread;
+	private final Thread hook;
+	private FileChannel channel;
+	private long size;						// Bytes del archivo actual
+	private long reported;					// Descartes ya informados en el log
+	private volatile long logSize;
+	private volatile long written;			// Líneas escritas
+	private volatile boolean sleeping;
+	private volatile boolean removing;
+	private volatile boolean closing;
+
+	/**
+	 * Constructor, abre el archivo de log para agregar al final
+	 * @param logFile Ruta completa del archivo de log
+	 * @param rotator Rotación de los archivos de log
+	 * @param logSize Tamaño máximo del archivo de log
+	 * @param formatter Formateador, para informar los descartes
+	 * @param capacity Cantidad máxima de líneas en espera
+	 * @param overflow Política cuando la cola está llena
+	 * @throws IOException Si no se puede abrir el archivo
+	 */
+	AsyncLogWriter(String logFile, LogRotator rotator, long logSize, Formatter formatter, int capacity, ELogOverflow overflow)
+		throws IOException
+	{
+		super();
+		this.ring = new Ring(capacity);
+		this.overflow = overflow;
+		this.formatter = formatter;
+		this.logFile = logFile;
+		this.rotator = rotator;
+		this.logSize = logSize;
+		this.console = System.err;
+		open();
+		thread = new Thread(this, "LogWriter " + new File(logFile).getName());
+		thread.setDaemon(true);
+		hook = new Thread(this::close, "LogWriter shutdown");
+	}
+
+	/**
+	 * Iniciar el hilo escritor
+	 */
+	void start()
+	{
+		thread.start();
+		Runtime.getRuntime().addShutdownHook(hook);
+	}
+
+	/**
+	 * Encolar una línea ya formateada. Si la cola está llena se aplica la política de desborde
+	 * @param line Bytes de la línea, incluido el fin de línea
+	 * @return true si se encoló o se descartó por la política de desborde, false si el escritor se está cerrando y
+	 * la línea debe escribirse por otro medio
+	 */
+	boolean offer(byte[] line)
+	{
+		offering.incrementAndGet();
+		try
+		{
+			if(closing)
+			{
+				return false;
+			}
+			if(ring.offer(line))
+			{
+				wake();
+				return true;
+			}
+			switch(overflow)
+			{
+				case BLOCK:
+					while(!ring.offer(line))
+					{
+						if(closing)
+						{
+							return false;
+						}
+						LockSupport.unpark(thread);
+						LockSupport.parkNanos(BLOCK_NANOS);
+					}
+					wake();
+					return true;
+				case DROP_AND_COUNT:
+					dropped.incrementAndGet();
+					return true;
+				case DROP:
+				default:
+					return true;
+			}
+		}
+		finally
+		{
+			offering.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Esperar a que se escriban las líneas encoladas hasta el momento
+	 */
+	void flush()
+	{
+		long target = ring.claimed();
+		while((written < target) && thread.isAlive())
+		{
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(BLOCK_NANOS);
+		}
+	}
+
+	/**
+	 * Borrar los archivos de log actual y viejos, después de escribir las líneas pendientes
+	 */
+	void remove()
+	{
+		flush();
+		removing = true;
+		while(removing && thread.isAlive())
+		{
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(BLOCK_NANOS);
+		}
+	}
+
+	/**
+	 * Escribir las líneas pendientes, terminar el hilo escritor y cerrar el archivo. Las líneas que se ofrecen desde
+	 * ese momento se rechazan, y las que se estaban encolando se escriben antes de terminar
+	 */
+	void close()
+	{
+		closing = true;
+		LockSupport.unpark(thread);
+		try
+		{
+			thread.join();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		try
+		{
+			Runtime.getRuntime().removeShutdownHook(hook);
+		}
+		catch(IllegalStateException e)
+		{
+			// La JVM ya está terminando
+		}
+	}
+
+	/**
+	 * Establecer el tamaño máximo del archivo de log
+	 * @param logSize Tamaño en bytes
+	 */
+	void setLogSize(long logSize)
+	{
+		this.logSize = logSize;
+	}
+
+	/**
+	 * Obtener la cantidad de líneas descartadas por tener la cola llena (sólo con ELogOverflow.DROP_AND_COUNT)
+	 * @return Cantidad de líneas descartadas
+	 */
+	long getDropped()
+	{
+		return dropped.get();
+	}
+
+	@Override
+	public void run()
+	{
+		byte[][] batch = new byte[BATCH][];
+		while(true)
+		{
+			int count = ring.drain(batch);
+			if(count > 0)
+			{
+				write(batch, count);
+				continue;
+			}
+			reportDropped();
+			if(removing)
+			{
+				removeFiles();
+				removing = false;
+			}
+			if(closing && (offering.get() == 0) && ring.isEmpty())
+			{
+				break;
+			}
+			sleeping = true;
+			if(ring.isEmpty() && !removing)
+			{
+				// Cerrando solo se espera a los hilos que todavía están encolando
+				LockSupport.parkNanos(this, closing ? BLOCK_NANOS : PARK_NANOS);
+			}
+			sleeping = false;
+		}
+		closeChannel();
+	}
+
+	/**
+	 * Despertar al hilo escritor si está esperando líneas
+	 */
+	private void wake()
+	{
+		if(sleeping)
+		{
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Escribir un lote de líneas
+	 * @param batch Líneas
+	 * @param count Cantidad de líneas
+	 */
+	private void write(byte[][] batch, int count)
+	{
+		for(int i = 0; i < count; ++i)
+		{
+			put(batch[i]);
+			batch[i] = null;
+		}
+		flushBuffer();
+		written += count;
+	}
+
+	/**
+	 * Copiar una línea al buffer de escritura, escribiéndolo antes si la línea no entra (las líneas más largas que
+	 * el buffer se copian por partes)
+	 * @param line Bytes de la línea
+	 */
+	private void put(byte[] line)
+	{
+		if(buffer.remaining() < line.length)
+		{
+			flushBuffer();
+		}
+		int pos = 0;
+		while(pos < line.length)
+		{
+			if(!buffer.hasRemaining())
+			{
+				flushBuffer();
+			}
+			int len = Math.min(buffer.remaining(), line.length - pos);
+			buffer.put(line, pos, len);
+			pos += len;
+		}
+	}
+
+	/**
+	 * Escribir el buffer en la consola y en el archivo, rotando el archivo si superó el tamaño máximo
+	 */
+	private void flushBuffer()
+	{
+		buffer.flip();
+		if(buffer.hasRemaining())
+		{
+			console.write(buffer.array(), buffer.position(), buffer.remaining());
+			if(channel != null)
+			{
+				try
+				{
+					while(buffer.hasRemaining())
+					{
+						size += channel.write(buffer);
+					}
+				}
+				catch(IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+		}
+		buffer.clear();
+		if(size > logSize)
+		{
+			rotate();
+		}
+	}
+
+	/**
+	 * Informar en el log las líneas descartadas desde el último informe
+	 */
+	private void reportDropped()
+	{
+		long count = dropped.get();
+		if(count > reported)
+		{
+			put(formatter.format(new LogRecord(Level.WARNING, (count - reported) + " log lines dropped")).getBytes());
+			flushBuffer();
+			reported = count;
+		}
+	}
+
+	/**
+	 * Pasar el archivo actual a las generaciones anteriores y empezar uno nuevo
+	 */
+	private void rotate()
+	{
+		closeChannel();
+		rotator.rotate();
+		try
+		{
+			open();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Borrar los archivos de log y empezar uno nuevo
+	 */
+	private void removeFiles()
+	{
+		closeChannel();
+		rotator.remove();
+		try
+		{
+			open();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Abrir el archivo de log para agregar al final
+	 * @throws IOException Si no se puede abrir el archivo
+	 */
+	private void open() throws IOException
+	{
+		channel = FileChannel.open(new File(logFile).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.APPEND);
+		size = channel.size();
+	}
+
+	/**
+	 * Cerrar el archivo de log
+	 */
+	private void closeChannel()
+	{
+		if(channel == null)
+		{
+			return;
+		}
+		try
+		{
+			channel.close();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+		channel = null;
+		size = 0;
+	}
+
+	/** Cola acotada de varios productores y un solo consumidor, sin bloqueos */
+	private static final class Ring
+	{
+		private final byte[][] items;
+		private final AtomicLongArray seqs;		// Posición que espera cada lugar: pos libre, pos + 1 ocupado
+		private final int mask;
+		private final AtomicLong tail = new AtomicLong();	// Próxima posición a ocupar
+		private long head;									// Próxima posición a leer, sólo la usa el consumidor
+
+		/**
+		 * Constructor
+		 * @param capacity Cantidad mínima de lugares, se redondea a potencia de 2
+		 */
+		Ring(int capacity)
+		{
+			int size = 2;
+			while(size < capacity)
+			{
+				size <<= 1;
+			}
+			items = new byte[size][];
+			seqs = new AtomicLongArray(size);
+			for(int i = 0; i < size; ++i)
+			{
+				seqs.set(i, i);
+			}
+			mask = size - 1;
+		}
+
+		/**
+		 * Encolar un elemento
+		 * @param item Elemento
+		 * @return true si se encoló, false si la cola está llena
+		 */
+		boolean offer(byte[] item)
+		{
+			long pos = tail.get();
+			while(true)
+			{
+				int index = (int) pos & mask;
+				long diff = seqs.get(index) - pos;
+				if(diff == 0)
+				{
+					if(tail.compareAndSet(pos, pos + 1))
+					{
+						items[index] = item;
+						seqs.lazySet(index, pos + 1);
+						return true;
+					}
+				}
+				else if(diff < 0)
+				{
+					return false;
+				}
+				pos = tail.get();
+			}
+		}
+
+		/**
+		 * Desencolar los elementos disponibles, sólo desde el hilo consumidor
+		 * @param batch Array de destino
+		 * @return Cantidad de elementos desencolados, hasta el largo del array
+		 */
+		int drain(byte[][] batch)
+		{
+			int count = 0;
+			while(count < batch.length)
+			{
+				int index = (int) head & mask;
+				if(seqs.get(index) != head + 1)
+				{
+					break;
+				}
+				batch[count++] = items[index];
+				items[index] = null;
+				seqs.lazySet(index, head + mask + 1);
+				++head;
+			}
+			return count;
+		}
+
+		/**
+		 * Saber si la cola está vacía, incluidos los elementos que se están encolando, sólo desde el hilo consumidor
+		 * @return true/false
+		 */
+		boolean isEmpty()
+		{
+			return tail.get() == head;
+		}
+
+		/**
+		 * Obtener la cantidad de posiciones ocupadas desde el inicio
+		 * @return Posiciones ocupadas
+		 */
+		long claimed()
+		{
+			return tail.get();
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package com.mlf.tools;
+
+/**
+ * Conversiones entre bytes, dígitos hexa, BCD empaquetado y dígitos ASCII mediante tablas precalculadas.
+ * Trabajan directamente sobre rangos de arrays y valores primitivos, sin crear objetos intermedios
+ * @author Mario
+ */
+public final class CodecTools
+{
+	private static final char[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+	/** Caracteres hexa de cada byte, el alto en la posición 2*b y el bajo en 2*b + 1 */
+	private static final char[] HEX_PAIRS = new char[512];
+	/** Valor de cada caracter hexa, los que no lo son valen sus 4 bits bajos */
+	private static final byte[] NIBBLES = new byte[256];
+	/** Valor de cada byte BCD (0 a 99) o -1 si alguno de sus dígitos no es decimal */
+	private static final byte[] BCD_VALUES = new byte[256];
+	/** Byte BCD de cada valor de 0 a 99 */
+	private static final byte[] BCD_BYTES = new byte[100];
+	/** Potencias de 10 que entran en un long */
+	private static final long[] POW10 = new long[19];
+
+	static
+	{
+		for(int b = 0; b < 256; ++b)
+		{
+			HEX_PAIRS[2*b] = HEX_DIGITS[b >> 4];
+			HEX_PAIRS[2*b + 1] = HEX_DIGITS[b & 0x0F];
+			int high = b >> 4;
+			int low = b & 0x0F;
+			BCD_VALUES[b] = (byte) (((high > 9) || (low > 9)) ? -1 : high*10 + low);
+			if((b >= '0') && (b <= '9'))
+			{
+				NIBBLES[b] = (byte) (b - '0');
+			}
+			else if((b >= 'A') && (b <= 'F'))
+			{
+				NIBBLES[b] = (byte) (10 + b - 'A');
+			}
+			else if((b >= 'a') && (b <= 'f'))
+			{
+				NIBBLES[b] = (byte) (10 + b - 'a');
+			}
+			else
+			{
+				NIBBLES[b] = (byte) (b & 0x0F);
+			}
+		}
+		for(int v = 0; v < 100; ++v)
+		{
+			BCD_BYTES[v] = (byte) (((v/10) << 4) | (v%10));
+		}
+		POW10[0] = 1;
+		for(int i = 1; i < POW10.length; ++i)
+		{
+			POW10[i] = POW10[i - 1]*10;
+		}
+	}
+
+	private CodecTools()
+	{
+	}
+
+	//---------------- Hexa -----------------------------------------------------------------------
+
+	/**
+	 * Valor de un caracter hexa ('0' a '9', 'A' a 'F', 'a' a 'f'), los demás caracteres valen sus 4 bits bajos
+	 * @param car Caracter
+	 * @return Valor (0 a 15)
+	 */
+	public static int nibble(int car)
+	{
+		return ((car & ~0xFF) == 0) ? NIBBLES[car] : (car & 0x0F);
+	}
+
+	/**
+	 * Caracter que representa un dígito hexa
+	 * @param digit Dígito (se usan sus 4 bits bajos)
+	 * @return Caracter ('0' a '9', 'A' a 'F')
+	 */
+	public static char hexDigit(int digit)
+	{
+		return HEX_DIGITS[digit & 0x0F];
+	}
+
+	/**
+	 * Convertir bytes a caracteres hexa (p.e. [24 A0] -> "24A0")
+	 * @param src Array de origen
+	 * @param offset Posición de origen
+	 * @param len Bytes a convertir
+	 * @param dest Array de destino, con lugar para 2*len caracteres
+	 * @param destOffset Posición de destino
+	 * @return Caracteres escritos
+	 */
+	public static int toHex(byte[] src, int offset, int len, char[] dest, int destOffset)
+	{
+		int pos = destOffset;
+		for(int i = offset; i < offset + len; ++i)
+		{
+			int b = (src[i] & 0xFF) << 1;
+			dest[pos++] = HEX_PAIRS[b];
+			dest[pos++] = HEX_PAIRS[b + 1];
+		}
+		return pos - destOffset;
+	}
+
+	/**
+	 * Convertir bytes a caracteres hexa ASCII (p.e. [24 A0] -> ['2' '4' 'A' '0'])
+	 * @param src Array de origen
+	 * @param offset Posición de origen
+	 * @param len Bytes a convertir
+	 * @param dest Array de destino, con lugar para 2*len bytes
+	 * @param destOffset Posición de destino
+	 * @return Bytes escritos
+	 */
+	public static int toHexAscii(byte[] src, int offset, int len, byte[] dest, int destOffset)
+	{
+		int pos = destOffset;
+		for(int i = offset; i < offset + len; ++i)
+		{
+			int b = (src[i] & 0xFF) << 1;
+			dest[pos++] = (byte) HEX_PAIRS[b];
+			dest[pos++] = (byte) HEX_PAIRS[b + 1];
+		}
+		return pos - destOffset;
+	}
+
+	/**
+	 * Convertir bytes a una cadena hexa (p.e. [24 A0] -> "24A0")
+	 * @param src Array de origen
+	 * @param offset Posición de origen
+	 * @param len Bytes a convertir
+	 * @return Cadena hexa
+	 */
+	public static String toHexString(byte[] src, int offset, int len)
+	{
+		if((src == null) || (len <= 0))
+		{
+			return "";
+		}
+		char[] out = new char[2*len];
+		toHex(src, offset, len, out, 0);
+		return new String(out);
+	}
+
+	/**
+	 * Convertir caracteres hexa a bytes (p.e. "24A0" -> [24 A0]). La cantidad de caracteres debe ser par
+	 * @param hex Caracteres hexa
+	 * @param from Posición del primer caracter
+	 * @param to Posición siguiente al último caracter
+	 * @param dest Array de destino, con lugar para (to - from)/2 bytes
+	 * @param destOffset Posición de destino
+	 * @return Bytes escritos
+	 */
+	public static int fromHex(CharSequence hex, int from, int to, byte[] dest, int destOffset)
+	{
+		int pos = destOffset;
+		for(int i = from; i + 1 < to; i += 2)
+		{
+			dest[pos++] = (byte) ((nibble(hex.charAt(i)) << 4) | nibble(hex.charAt(i + 1)));
+		}
+		return pos - destOffset;
+	}
+
+	/**
+	 * Convertir caracteres hexa ASCII a bytes (p.e. ['2' '4' 'A' '0'] -> [24 A0]). La cantidad de caracteres
+	 * debe ser par
+	 * @param src Array con los caracteres hexa
+	 * @param offset Posición del primer caracter
+	 * @param len Cantidad de caracteres
+	 * @param dest Array de destino, con lugar para len/2 bytes
+	 * @param destOffset Posición de destino
+	 * @return Bytes escritos
+	 */
+	public static int fromHexAscii(byte[] src, int offset, int len, byte[] dest, int destOffset)
+	{
+		int pos = destOffset;
+		for(int i = offset; i + 1 < offset + len; i += 2)
+		{
+			dest[pos++] = (byte) ((NIBBLES[src[i] & 0xFF] << 4) | NIBBLES[src[i + 1] & 0xFF]);
+		}
+		return pos - destOffset;
+	}
+
+	//---------------- BCD ------------------------------------------------------------------------
+
+	/**
+	 * Valor de un byte BCD de dos dígitos
+	 * @param value Byte BCD
+	 * @return Valor (0 a 99) o -1 si no es BCD
+	 */
+	public static int bcd(byte value)
+	{
+		return BCD_VALUES[value & 0xFF];
+	}
+
+	/**
+	 * Empaquetar BCD un valor de dos dígitos
+	 * @param value Valor (0 a 99)
+	 * @return Byte BCD
+	 */
+	public static byte toBcd(int value)
+	{
+		return BCD_BYTES[value];
+	}
+
+	/**
+	 * Obtener el valor de un número BCD empaquetado (p.e. [01 23 45] -> 12345)
+	 * @param src Array de origen
+	 * @param offset Posición del número
+	 * @param len Bytes del número, hasta 9
+	 * @return Valor o -1 si algún dígito no es decimal
+	 */
+	public static long bcdToLong(byte[] src, int offset, int len)
+	{
+		long value = 0;
+		for(int i = offset; i < offset + len; ++i)
+		{
+			int v = BCD_VALUES[src[i] & 0xFF];
+			if(v < 0)
+			{
+				return -1;
+			}
+			value = value*100 + v;
+		}
+		return value;
+	}
+
+	/**
+	 * Escribir un número en BCD empaquetado, con ceros a la izquierda o sin los dígitos altos que no entran
+	 * (p.e. 12345 en 3 bytes -> [01 23 45])
+	 * @param value Valor no negativo
+	 * @param dest Array de destino
+	 * @param offset Posición de destino
+	 * @param len Bytes del número
+	 */
+	public static void putBcd(long value, byte[] dest, int offset, int len)
+	{
+		for(int i = offset + len - 1; i >= offset; --i)
+		{
+			dest[i] = BCD_BYTES[(int) (value%100)];
+			value /= 100;
+		}
+	}
+
+	//---------------- Dígitos ASCII --------------------------------------------------------------
+
+	/**
+	 * Obtener el valor de un número en dígitos ASCII (p.e. "0123" -> 123)
+	 * @param src Array de origen
+	 * @param offset Posición del número
+	 * @param len Cantidad de dígitos, hasta 18
+	 * @return Valor o -1 si algún caracter no es un dígito
+	 */
+	public static long asciiToLong(byte[] src, int offset, int len)
+	{
+		long value = 0;
+		for(int i = offset; i < offset + len; ++i)
+		{
+			int digit = src[i] - '0';
+			if((digit < 0) || (digit > 9))
+			{
+				return -1;
+			}
+			value = value*10 + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * Escribir un número en dígitos ASCII, con ceros a la izquierda o sin los dígitos altos que no entran
+	 * (p.e. 123 en 4 dígitos -> "0123")
+	 * @param value Valor no negativo
+	 * @param dest Array de destino
+	 * @param offset Posición de destino
+	 * @param len Cantidad de dígitos
+	 */
+	public static void putAscii(long value, byte[] dest, int offset, int len)
+	{
+		for(int i = offset + len - 1; i >= offset; --i)
+		{
+			dest[i] = (byte) ('0' + value%10);
+			value /= 10;
+		}
+	}
+
+	/**
+	 * Obtener la cantidad de dígitos decimales de un valor
+	 * @param value Valor no negativo
+	 * @return Cantidad de dígitos
+	 */
+	public static int digits(long value)
+	{
+		int n = 1;
+		while((n < POW10.length) && (value >= POW10[n]))
+		{
+			++n;
+		}
+		return n;
+	}
+
+	/**
+	 * Obtener un dígito decimal de un valor
+	 * @param value Valor no negativo
+	 * @param n Cantidad de dígitos del valor (ver digits)
+	 * @param i Posición del dígito, 0 es el más significativo
+	 * @return Dígito (0 a 9)
+	 */
+	public static int digitAt(long value, int n, int i)
+	{
+		return (int) ((value/POW10[n - 1 - i])%10);
+	}
+}
@@ -1,7 +1,7 @@
 package com.mlf.tools;
 
 /**
- * Alineacin
+ * Alineación
  * @author Mario
  */
 public enum EAlign
@@ -0,0 +1,32 @@
+package com.mlf.tools;
+
+/**
+ * Política del log asincrónico cuando la cola de registros está llena
+ * @author Mario
+ */
+public enum ELogOverflow
+{
+	/** Esperar a que haya lugar en la cola */
+	BLOCK,
+	/** Descartar el registro */
+	DROP,
+	/** Descartar el registro, contarlo e informar la cantidad descartada en el log */
+	DROP_AND_COUNT;
+
+	/**
+	 * Obtener el elemento del enum a partir del nombre
+	 * @param name Nombre
+	 * @return Elemento del enum
+	 */
+	public static ELogOverflow fromName(String name)
+	{
+		for(ELogOverflow type : ELogOverflow.values())
+		{
+			if(type.name().equalsIgnoreCase(name))
+			{
+				return type;
+			}
+		}
+		return BLOCK;
+	}
+};
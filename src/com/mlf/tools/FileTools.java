@@ -17,9 +17,9 @@ import java.util.Arrays;
 public class FileTools
 {
 	/**
-	 * Leer lneas de un archivo
+	 * Leer líneas de un archivo
 	 * @param is Flujo de entrada
-	 * @return Lneas ledas
+	 * @return Líneas leídas
 	 */
 	public static ArrayList<String> readLines(FileInputStream is)
 	{
@@ -27,10 +27,10 @@ public class FileTools
 	}
 
 	/**
-	 * Leer lneas de un archivo
+	 * Leer líneas de un archivo
 	 * @param file Archivo
-	 * @param excludeEmpty Indica si omitir la lneas vacas
-	 * @return Lneas ledas
+	 * @param excludeEmpty Indica si omitir la líneas vacías
+	 * @return Líneas leídas
 	 */
 	public static ArrayList<String> readLines(File file, boolean excludeEmpty)
 	{
@@ -48,10 +48,10 @@ public class FileTools
 	}
 
 	/**
-	 * Leer lneas de un archivo
+	 * Leer líneas de un archivo
 	 * @param is Flujo de archivo de entrada
-	 * @param excludeEmpty Indica si omitir la lneas vacas
-	 * @return Lista de lneas
+	 * @param excludeEmpty Indica si omitir la líneas vacías
+	 * @return Lista de líneas
 	 */
 	public static ArrayList<String> readLines(FileInputStream is, boolean excludeEmpty)
 	{
@@ -80,8 +80,8 @@ public class FileTools
 	/**
 	 * Escribir array de strings en el stream de salida
 	 * @param os Stream de salida
-	 * @param lines Lneas
-	 * @return Lneas escritas o -1
+	 * @param lines Líneas
+	 * @return Líneas escritas o -1
 	 */
 	public static int writeLines(OutputStream os, String[] lines)
 	{
@@ -91,9 +91,9 @@ public class FileTools
 	/**
 	 * Escribir array de strings en el stream de salida
 	 * @param os Stream de salida
-	 * @param lines Lneas
-	 * @param excludeEmpty Excluir lneas vacas
-	 * @return Lneas escritas o -1
+	 * @param lines Líneas
+	 * @param excludeEmpty Excluir líneas vacías
+	 * @return Líneas escritas o -1
 	 */
 	public static int writeLines(OutputStream os, String[] lines, boolean excludeEmpty)
 	{
@@ -105,8 +105,8 @@ public class FileTools
 	/**
 	 * Escribir array de strings en el stream de salida
 	 * @param os Stream de salida
-	 * @param lines Lneas
-	 * @return Lneas escritas o -1
+	 * @param lines Líneas
+	 * @return Líneas escritas o -1
 	 */
 	public static int writeLines(OutputStream os, ArrayList<String> lines)
 	{
@@ -116,9 +116,9 @@ public class FileTools
 	/**
 	 * Escribir array de strings en el stream de salida
 	 * @param os Stream de salida
-	 * @param lines Lneas
-	 * @param excludeEmpty Excluir lneas vacas
-	 * @return Lneas escritas o -1
+	 * @param lines Líneas
+	 * @param excludeEmpty Excluir líneas vacías
+	 * @return Líneas escritas o -1
 	 */
 	public static int writeLines(OutputStream os, ArrayList<String> lines, boolean excludeEmpty)
 	{
@@ -0,0 +1,180 @@
+package com.mlf.tools;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * Volcado hexa para log con el formato de trx_base.txt: líneas de 16 bytes con los valores hexa seguidos de sus
+ * caracteres imprimibles ('.' para los demás), separadas por fin de línea y sin fin de línea al final. Se escribe
+ * directamente desde los bytes mediante tablas, en un Appendable o en un array de bytes
+ * @author Mario
+ */
+public final class HexDump
+{
+	/** Bytes por línea */
+	public static final int COLUMNS = 16;
+
+	private static final int LINE_LEN = 4*COLUMNS + 1;			// Valores hexa, caracteres y fin de línea
+	private static final char[] CELLS = new char[3*256];		// Valor hexa de cada byte seguido de un espacio
+	private static final char[] PRINTABLE = new char[256];	// Caracter de cada byte en la parte de caracteres
+
+	static
+	{
+		for(int b = 0; b < 256; ++b)
+		{
+			CELLS[3*b] = CodecTools.hexDigit(b >> 4);
+			CELLS[3*b + 1] = CodecTools.hexDigit(b);
+			CELLS[3*b + 2] = ' ';
+			PRINTABLE[b] = ((b < 32) || (b > 127)) ? '.' : (char) b;
+		}
+	}
+
+	private HexDump()
+	{
+	}
+
+	/**
+	 * Obtener el largo del volcado de una cantidad de bytes
+	 * @param len Cantidad de bytes
+	 * @return Caracteres del volcado
+	 */
+	public static int size(int len)
+	{
+		if(len <= 0)
+		{
+			return 0;
+		}
+		int lines = (len + COLUMNS - 1)/COLUMNS;
+		return lines*3*COLUMNS + len + lines - 1;
+	}
+
+	/**
+	 * Obtener el volcado de un rango de bytes
+	 * @param data Array de bytes
+	 * @param offset Posición del primer byte
+	 * @param len Cantidad de bytes
+	 * @return Volcado, vacío si no hay bytes
+	 */
+	public static String toString(byte[] data, int offset, int len)
+	{
+		if((data == null) || (len <= 0))
+		{
+			return "";
+		}
+		return write(data, offset, len, new StringBuilder(size(len))).toString();
+	}
+
+	/**
+	 * Agregar el volcado de un rango de bytes
+	 * @param data Array de bytes
+	 * @param offset Posición del primer byte
+	 * @param len Cantidad de bytes
+	 * @param out Destino
+	 * @return Destino
+	 */
+	public static StringBuilder write(byte[] data, int offset, int len, StringBuilder out)
+	{
+		if((data == null) || (len <= 0))
+		{
+			return out;
+		}
+		char[] line = new char[LINE_LEN];
+		for(int pos = offset; pos < offset + len; pos += COLUMNS)
+		{
+			out.append(line, 0, line(data, pos, offset + len, line));
+		}
+		return out;
+	}
+
+	/**
+	 * Agregar el volcado de un rango de bytes
+	 * @param data Array de bytes
+	 * @param offset Posición del primer byte
+	 * @param len Cantidad de bytes
+	 * @param out Destino
+	 * @throws IOException Si falla la escritura en el destino
+	 */
+	public static void write(byte[] data, int offset, int len, Appendable out) throws IOException
+	{
+		if((data == null) || (len <= 0))
+		{
+			return;
+		}
+		char[] line = new char[LINE_LEN];
+		CharBuffer chars = CharBuffer.wrap(line);
+		for(int pos = offset; pos < offset + len; pos += COLUMNS)
+		{
+			out.append(chars, 0, line(data, pos, offset + len, line));
+		}
+	}
+
+	/**
+	 * Escribir el volcado de un rango de bytes en un array, como caracteres ASCII
+	 * @param data Array de bytes
+	 * @param offset Posición del primer byte
+	 * @param len Cantidad de bytes
+	 * @param dest Array de destino, con lugar para size(len) bytes
+	 * @param destOffset Posición de destino
+	 * @return Cantidad de bytes escritos, 0 si no hay lugar en el array
+	 */
+	public static int write(byte[] data, int offset, int len, byte[] dest, int destOffset)
+	{
+		if((data == null) || (len <= 0))
+		{
+			return 0;
+		}
+		int size = size(len);
+		if(dest.length - destOffset < size)
+		{
+			Log.err("Buffer to short " + (dest.length - destOffset) + ", dump len " + size);
+			return 0;
+		}
+		char[] line = new char[LINE_LEN];
+		int out = destOffset;
+		for(int pos = offset; pos < offset + len; pos += COLUMNS)
+		{
+			int lineLen = line(data, pos, offset + len, line);
+			for(int i = 0; i < lineLen; ++i)
+			{
+				dest[out++] = (byte) line[i];
+			}
+		}
+		return out - destOffset;
+	}
+
+	/**
+	 * Armar una línea del volcado
+	 * @param data Array de bytes
+	 * @param pos Posición del primer byte de la línea
+	 * @param end Posición siguiente al último byte del volcado
+	 * @param line Array de destino
+	 * @return Caracteres de la línea, incluido el fin de línea si no es la última
+	 */
+	private static int line(byte[] data, int pos, int end, char[] line)
+	{
+		int count = Math.min(COLUMNS, end - pos);
+		int len = 0;
+		for(int i = 0; i < count; ++i)
+		{
+			int cell = 3*(data[pos + i] & 0xFF);
+			line[len++] = CELLS[cell];
+			line[len++] = CELLS[cell + 1];
+			line[len++] = CELLS[cell + 2];
+		}
+		for(int i = count; i < COLUMNS; ++i)
+		{
+			line[len++] = ' ';
+			line[len++] = ' ';
+			line[len++] = ' ';
+		}
+		for(int i = 0; i < count; ++i)
+		{
+			line[len++] = PRINTABLE[data[pos + i] & 0xFF];
+		}
+		if(pos + COLUMNS < end)
+		{
+			line[len++] = '\n';
+		}
+		return len;
+	}
+}
@@ -1,9 +1,10 @@
 package com.mlf.tools;
 
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
- * Log global
+ * Log global. Las variantes con Supplier y isEnabled permiten no armar los mensajes que no se van a escribir
  * @author Mario
  */
 public class Log
@@ -58,6 +59,53 @@ public class Log
 		}
 	}
 
+	/**
+	 * Log info, el mensaje sólo se arma si el nivel está habilitado
+	 * @param message Generador del mensaje
+	 */
+	public static void info(Supplier<String> message)
+	{
+		if(isEnabled(Level.INFO))
+		{
+			info(message.get());
+		}
+	}
+
+	/**
+	 * Log warning, el mensaje sólo se arma si el nivel está habilitado
+	 * @param message Generador del mensaje
+	 */
+	public static void war(Supplier<String> message)
+	{
+		if(isEnabled(Level.WARNING))
+		{
+			war(message.get());
+		}
+	}
+
+	/**
+	 * Log error, el mensaje sólo se arma si el nivel está habilitado
+	 * @param message Generador del mensaje
+	 */
+	public static void err(Supplier<String> message)
+	{
+		if(isEnabled(Level.SEVERE))
+		{
+			err(message.get());
+		}
+	}
+
+	/**
+	 * Saber si se escriben los mensajes de un nivel. Sin objeto de log se escribe todo en la salida estándar
+	 * @param level Nivel del mensaje (Level.INFO, Level.WARNING o Level.SEVERE)
+	 * @return true/false
+	 */
+	public static boolean isEnabled(Level level)
+	{
+		LogTools log = Log.log;
+		return (log == null) || log.isEnabled(level);
+	}
+
 	/**
 	 * Establecer el objeto de log
 	 * @param log Log
@@ -0,0 +1,208 @@
+package com.mlf.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Rotación de los archivos de log. El archivo actual pasa a ser la generación 1 (archivo.old) y las anteriores se
+ * corren una posición (archivo.old.2, archivo.old.3, ...) hasta la cantidad de generaciones configurada. Las
+ * generaciones pueden comprimirse con gzip (se agrega .gz al nombre) en un hilo aparte
+ * @author Mario
+ */
+final class LogRotator
+{
+	private static final String GZ = ".gz";
+
+	private final String logFile;
+	private volatile int count = 1;
+	private volatile boolean compress = false;
+	private ExecutorService compressor;
+	private Future<?> pending;
+
+	/**
+	 * Constructor
+	 * @param logFile Ruta completa del archivo de log
+	 */
+	LogRotator(String logFile)
+	{
+		super();
+		this.logFile = logFile;
+	}
+
+	/**
+	 * Obtener la ruta de una generación sin comprimir
+	 * @param generation Generación, 1 es la más reciente
+	 * @return Ruta completa del archivo
+	 */
+	String getOldFile(int generation)
+	{
+		return (generation == 1) ? logFile + ".old" : logFile + ".old." + generation;
+	}
+
+	/**
+	 * Establecer la cantidad de generaciones que se guardan
+	 * @param count Cantidad de generaciones (mínimo 1)
+	 */
+	void setCount(int count)
+	{
+		this.count = Math.max(1, count);
+	}
+
+	/**
+	 * Obtener la cantidad de generaciones que se guardan
+	 * @return Cantidad de generaciones
+	 */
+	int getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Establecer si se comprimen las generaciones
+	 * @param compress true para comprimir con gzip
+	 */
+	void setCompress(boolean compress)
+	{
+		this.compress = compress;
+	}
+
+	/**
+	 * Saber si se comprimen las generaciones
+	 * @return true/false
+	 */
+	boolean isCompress()
+	{
+		return compress;
+	}
+
+	/**
+	 * Pasar el archivo actual, que debe estar cerrado, a la generación 1 corriendo las anteriores. Si se comprime,
+	 * la compresión se hace en segundo plano
+	 */
+	synchronized void rotate()
+	{
+		waitPending();
+		int n = count;
+		delete(getOldFile(n));
+		delete(getOldFile(n) + GZ);
+		for(int i = n - 1; i >= 1; --i)
+		{
+			rename(getOldFile(i), getOldFile(i + 1));
+			rename(getOldFile(i) + GZ, getOldFile(i + 1) + GZ);
+		}
+		File fileLog = new File(logFile);
+		File fileOld = new File(getOldFile(1));
+		if(!fileLog.renameTo(fileOld))
+		{
+			return;
+		}
+		if(compress)
+		{
+			if(compressor == null)
+			{
+				compressor = Executors.newSingleThreadExecutor(r -> {
+					Thread thread = new Thread(r, "LogRotator " + fileLog.getName());
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			pending = compressor.submit(() -> gzip(fileOld));
+		}
+	}
+
+	/**
+	 * Borrar el archivo actual, que debe estar cerrado, y todas las generaciones
+	 */
+	synchronized void remove()
+	{
+		waitPending();
+		for(int i = 1; i <= count; ++i)
+		{
+			delete(getOldFile(i));
+			delete(getOldFile(i) + GZ);
+		}
+		delete(logFile);
+	}
+
+	/**
+	 * Esperar a que termine la compresión en curso, antes de mover las generaciones
+	 */
+	private void waitPending()
+	{
+		if(pending == null)
+		{
+			return;
+		}
+		try
+		{
+			pending.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e)
+		{
+			e.printStackTrace();
+		}
+		pending = null;
+	}
+
+	/**
+	 * Comprimir un archivo con gzip y borrarlo. Se escribe en un temporal que se renombra al terminar, así nunca
+	 * queda un .gz incompleto
+	 * @param file Archivo
+	 */
+	private static void gzip(File file)
+	{
+		File tmp = new File(file.getPath() + GZ + ".tmp");
+		byte[] buffer = new byte[64*1024];
+		try(InputStream in = new FileInputStream(file); OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp), buffer.length))
+		{
+			int len;
+			while((len = in.read(buffer)) > 0)
+			{
+				out.write(buffer, 0, len);
+			}
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+			tmp.delete();
+			return;
+		}
+		File gz = new File(file.getPath() + GZ);
+		gz.delete();
+		if(tmp.renameTo(gz))
+		{
+			file.delete();
+		}
+	}
+
+	private static void delete(String path)
+	{
+		File file = new File(path);
+		if(file.isFile() && file.exists())
+		{
+			file.delete();
+		}
+	}
+
+	private static void rename(String from, String to)
+	{
+		File file = new File(from);
+		if(file.exists())
+		{
+			file.renameTo(new File(to));
+		}
+	}
+}
@@ -2,9 +2,8 @@ package com.mlf.tools;
 
 import java.io.File;
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
@@ -14,46 +13,169 @@ import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 /**
- * Clase sencilla para el manejo de logs. Ofrece enviar log a la terminal y a un archivo si se ha indicado una ruta vlida
- * Tiene mtodos para logear en varios niveles: informacin (log_info), advertencia (log_war) y error (log_err). Se le puede
- * dar un nivel de log, incluso apagado y crea dos archivos uno actual y uno anterior. El tamao del log tambin puede ser establecido. 
+ * Clase sencilla para el manejo de logs. Ofrece enviar log a la terminal y a un archivo si se ha indicado una ruta válida
+ * Tiene métodos para logear en varios niveles: información (log_info), advertencia (log_war) y error (log_err). Se le puede
+ * dar un nivel de log, incluso apagado y crea dos archivos uno actual y uno anterior. El tamaño del log también puede ser establecido. 
+ * Se pueden guardar más generaciones anteriores (setLogCount) y comprimirlas con gzip (setCompressOld). El tamaño del archivo
+ * actual se lleva con un contador de lo escrito, sin consultar el archivo en cada línea
+ * En modo asincrónico (startAsync) los hilos que logean sólo formatean la línea y la encolan, y un hilo aparte la escribe.
+ * El formateador puede usarse desde varios hilos: la hora se formatea una vez por segundo y cada hilo arma sus líneas en su
+ * propio buffer
  * @author Mario Foos
  */
 public class LogTools
 {
 	private static final int DEF_MAX_LINE_LEN = -1;
-	
+	private static final String EOL = System.getProperty("line.separator");
+	private static final int MAX_KEPT_BUFFER = 16*1024;		// Buffers más grandes no se conservan entre líneas
+	private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+	/** Hora HH:mm:ss ya formateada de un segundo */
+	private static final class Second
+	{
+		private final long epoch;
+		private final String text;
+
+		Second(long epoch, String text)
+		{
+			this.epoch = epoch;
+			this.text = text;
+		}
+	}
+	private static volatile Second second = new Second(Long.MIN_VALUE, "");
+
+	/**
+	 * Obtener la hora HH:mm:ss local de un instante, se formatea una vez por segundo
+	 * @param millis Instante en milisegundos
+	 * @return Hora formateada
+	 */
+	private static String time(long millis)
+	{
+		long epoch = Math.floorDiv(millis, 1000L);
+		Second last = second;
+		if(last.epoch != epoch)
+		{
+			long local = epoch + TimeZone.getDefault().getOffset(millis)/1000;
+			int secs = (int) Math.floorMod(local, 86400L);
+			char[] text = new char[8];
+			twoDigits(secs/3600, text, 0);
+			text[2] = ':';
+			twoDigits((secs/60)%60, text, 3);
+			text[5] = ':';
+			twoDigits(secs%60, text, 6);
+			last = new Second(epoch, new String(text));
+			second = last;
+		}
+		return last.text;
+	}
+
+	private static void twoDigits(int value, char[] dest, int pos)
+	{
+		dest[pos] = (char) ('0' + value/10);
+		dest[pos + 1] = (char) ('0' + value%10);
+	}
+
 	private class MyFormatter extends Formatter
 	{
-	    private DateFormat df;
-		private int maxLineLen;
+		private volatile int maxLineLen;
 
 		public MyFormatter()
 		{
 			super();
-			df = new SimpleDateFormat("HH:mm:ss");
 			maxLineLen = DEF_MAX_LINE_LEN;
 		}
 		@Override
 		public String format(LogRecord record)
 		{
-			StringBuffer builder = new StringBuffer();
-			String line = formatMessage(record);
-			if((maxLineLen > 0) && (line.length() > maxLineLen))
+			return format(record.getLevel(), record.getMillis(), formatMessage(record));
+	    }
+		public String format(Level level, long millis, String line)
+		{
+			return build(level, millis, line).toString();
+	    }
+		/**
+		 * Formatear una línea directamente a bytes, en la codificación por defecto
+		 * @param level Nivel
+		 * @param millis Instante en milisegundos
+		 * @param line Mensaje
+		 * @return Línea formateada, incluido el fin de línea
+		 */
+		public byte[] encode(Level level, long millis, String line)
+		{
+			StringBuilder builder = build(level, millis, line);
+			int len = builder.length();
+			byte[] out = new byte[len];
+			for(int i = 0; i < len; ++i)
 			{
-				line = line.substring(0, maxLineLen);
+				char car = builder.charAt(i);
+				if(car >= 0x80)
+				{
+					return builder.toString().getBytes();
+				}
+				out[i] = (byte) car;
 			}
-	        builder.append("[").append(df.format(new Date(record.getMillis()))).append("]");
-	        builder.append("[").append(record.getLevel()).append("] ");
-	        builder.append(line);
-	        builder.append(System.getProperty("line.separator"));
-        	return builder.toString();
-	    }
+			return out;
+		}
+		/**
+		 * Armar la línea en el buffer del hilo
+		 * @param level Nivel
+		 * @param millis Instante en milisegundos
+		 * @param line Mensaje
+		 * @return Buffer del hilo con la línea, válido hasta la próxima línea del mismo hilo
+		 */
+		private StringBuilder build(Level level, long millis, String line)
+		{
+			StringBuilder builder = BUFFERS.get();
+			if(builder.capacity() > MAX_KEPT_BUFFER)
+			{
+				builder = new StringBuilder(256);
+				BUFFERS.set(builder);
+			}
+			builder.setLength(0);
+			int len = line.length();
+			if((maxLineLen > 0) && (len > maxLineLen))
+			{
+				len = maxLineLen;
+			}
+	        builder.append('[').append(time(millis)).append(']');
+	        builder.append('[').append(level.getName()).append("] ");
+	        builder.append(line, 0, len);
+	        builder.append(EOL);
+	        return builder;
+		}
 		public void setMaxLineLen(int maxLineLen)
 		{
 			this.maxLineLen = maxLineLen;
 		}
 	}
+	/** Formateador del archivo, cuenta los bytes escritos para la rotación */
+	private class FileFormatter extends Formatter
+	{
+		@Override
+		public String format(LogRecord record)
+		{
+			String line = formatter.format(record);
+			fileSize.addAndGet(byteLength(line));
+			return line;
+		}
+		/**
+		 * Obtener el largo de una línea en la codificación por defecto, que es la del handler del archivo
+		 * @param line Línea formateada
+		 * @return Cantidad de bytes
+		 */
+		private int byteLength(String line)
+		{
+			int len = line.length();
+			for(int i = 0; i < len; ++i)
+			{
+				if(line.charAt(i) >= 0x80)
+				{
+					return line.getBytes().length;
+				}
+			}
+			return len;
+		}
+	}
 	private static final long MIN_LOG_SIZE = 1024;
 	private static final long DEF_LOG_SIZE = 1024*1024*20;
 	private Logger LOGGER;
@@ -62,12 +184,16 @@ public class LogTools
 	private FileHandler fileHandler;
 	private ConsoleHandler consoleHandler;
 	private MyFormatter formatter;
+	private FileFormatter fileFormatter;
+	private LogRotator rotator;
+	private final AtomicLong fileSize = new AtomicLong();
 	private Level logLevel;
 	private long logSize;
+	private volatile AsyncLogWriter async;
 
 	/**
 	 * Contructor. El nivel de log se pone en Level.SEVERE por defecto por lo
-	 * que solo se logean los errores. El tamao de log por defecto se deja en 5MB
+	 * que solo se logean los errores. El tamaño de log por defecto se deja en 5MB
 	 * @param logFile Ruta completa del archivo de log
 	 */
 	public LogTools(String logFile)
@@ -80,7 +206,7 @@ public class LogTools
 	 * @param logFile Ruta completa del archivo de log
 	 * @param logLevel Nivel de log
 	 * Level.ALL: Todo
-	 * Level.INFO: Hasta nivel de informacin
+	 * Level.INFO: Hasta nivel de información
 	 * Level.WARNING: hasta nivel de advertencias
 	 * Level.SEVERE: Solo logear errores
 	 * Level.OFF: Desactivar el log
@@ -91,15 +217,15 @@ public class LogTools
 	}
 
 	/**
-	 * Constructor. El tamao de log por defecto se deja en 5MB
+	 * Constructor. El tamaño de log por defecto se deja en 5MB
 	 * @param logFile Ruta completa del archivo de log
 	 * @param logLevel Nivel de log
 	 * Level.ALL: Todo
-	 * Level.INFO: Hasta nivel de informacin
+	 * Level.INFO: Hasta nivel de información
 	 * Level.WARNING: hasta nivel de advertencias
 	 * Level.SEVERE: Solo logear errores
 	 * Level.OFF: Desactivar el log
-	 * @param logSize Tamao del log
+	 * @param logSize Tamaño del log
 	 */
 	public LogTools(String logFile, Level logLevel, long logSize)
 	{
@@ -107,21 +233,22 @@ public class LogTools
 	}
 	
 	/**
-	 * Constructor. El tamao de log por defecto se deja en 5MB
+	 * Constructor. El tamaño de log por defecto se deja en 5MB
 	 * @param logFile Ruta completa del archivo de log
 	 * @param logLevel Nivel de log
 	 * Level.ALL: Todo
-	 * Level.INFO: Hasta nivel de informacin
+	 * Level.INFO: Hasta nivel de información
 	 * Level.WARNING: hasta nivel de advertencias
 	 * Level.SEVERE: Solo logear errores
 	 * Level.OFF: Desactivar el log
-	 * @param logSize Tamao del log
-	 * @param lineSize Tamao de la lnea del log
+	 * @param logSize Tamaño del log
+	 * @param lineSize Tamaño de la línea del log
 	 */
 	public LogTools(String logFile, Level logLevel, long logSize, int lineSize)
 	{
 		formatter = new MyFormatter();
 		formatter.setMaxLineLen(lineSize);
+		fileFormatter = new FileFormatter();
     	String[] tokens = logFile.split("[\\\\|/]");
     	String filename = tokens[tokens.length - 1];
 		LOGGER = Logger.getLogger(LogTools.class.getName()+ "." + filename);
@@ -133,42 +260,54 @@ public class LogTools
 
 	private void TestLogSize()
 	{
-		File fileLog = new File(logFile);
-		if(fileLog.length() > logSize)
+		if(fileSize.get() <= logSize)
 		{
+			return;
+		}
+		synchronized(this)
+		{
+			if((fileSize.get() <= logSize) || (async != null))
+			{
+				return;
+			}
 			// Remuevo el handler del archivo
 			fileHandler.flush();
 			fileHandler.close();
 			LOGGER.removeHandler(fileHandler);
-			
-			// Borro el viejo
-			File fileOld = new File(logFileOld);
-			if(fileOld.isFile() && fileOld.exists())
-			{
-				fileOld.delete();
-			}
-			fileLog.renameTo(fileOld);
+
+			// Paso el actual a las generaciones anteriores
+			rotator.rotate();
 
 			// Agrego el handler nuevo
-			try
-			{
-				fileHandler = new FileHandler(logFile, true);
-				fileHandler.setFormatter(formatter);
-				LOGGER.addHandler(fileHandler);
-			}
-			catch(SecurityException e)
-			{
-				e.printStackTrace();
-				return;
-			}
-			catch(IOException e)
-			{
-				e.printStackTrace();
-				return;
-			}
+			addFileHandler();
 		}
 	}
 
+	/**
+	 * Crear el handler del archivo de log y agregarlo al logger
+	 * @return true si se agregó, false si hay error
+	 */
+	private boolean addFileHandler()
+	{
+		try
+		{
+			fileSize.set(new File(logFile).length());
+			fileHandler = new FileHandler(logFile, true);
+			fileHandler.setFormatter(fileFormatter);
+			LOGGER.addHandler(fileHandler);
+			return true;
+		}
+		catch(SecurityException e)
+		{
+			e.printStackTrace();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+		return false;
+	}
+
 	private void setLogFile(String logFile)
 	{
 		if(logFile == null)
@@ -190,11 +329,13 @@ public class LogTools
 		}
 		// Crear handler de file
 		this.logFile = logFile;
-		this.logFileOld = this.logFile + ".old" ;
+		this.rotator = new LogRotator(logFile);
+		this.logFileOld = rotator.getOldFile(1);
 		try
 		{
+			fileSize.set(new File(this.logFile).length());
 			fileHandler = new FileHandler(this.logFile, true);
-			fileHandler.setFormatter(formatter);
+			fileHandler.setFormatter(fileFormatter);
 		}
 		catch(SecurityException e)
 		{
@@ -247,38 +388,22 @@ public class LogTools
 	 */
 	public void RemoveLogs()
 	{
+		AsyncLogWriter writer = async;
+		if(writer != null)
+		{
+			writer.remove();
+			return;
+		}
 		// Remuevo el handler del archivo
 		fileHandler.flush();
 		fileHandler.close();
 		LOGGER.removeHandler(fileHandler);
 		
-		// Borro el viejo
-		File fileOld = new File(logFileOld);
-		if(fileOld.isFile() && fileOld.exists())
-		{
-			fileOld.delete();
-		}
-		// Borro el actual
-		File fileLog = new File(logFile);
-		fileLog.delete();
+		// Borro el actual y los viejos
+		rotator.remove();
 		
 		// Agrego el handler nuevo
-		try
-		{
-			fileHandler = new FileHandler(logFile, true);
-			fileHandler.setFormatter(formatter);
-			LOGGER.addHandler(fileHandler);
-		}
-		catch(SecurityException e)
-		{
-			e.printStackTrace();
-			return;
-		}		
-		catch(IOException e)
-		{
-			e.printStackTrace();
-			return;
-		}		
+		addFileHandler();
 	}
 
 	/**
@@ -291,7 +416,7 @@ public class LogTools
 	}
 	
 	/**
-	 * Obtener la ruta completa del archivo de log viejo
+	 * Obtener la ruta completa del archivo de log viejo (la generación más reciente, sin comprimir)
 	 * @return Ruta completa del archivo de log viejo
 	 */
 	public String getLogFileOld()
@@ -300,17 +425,22 @@ public class LogTools
 	}
 	
 	/**
-	 * Establecer el tamao del archivo de log mximo (al superarse se guarda como viejo y se empieza con otro los)
-	 * @param logSize Tamao en bytes del log (mnimo permitido 1kb)
+	 * Establecer el tamaño del archivo de log máximo (al superarse se guarda como viejo y se empieza con otro los)
+	 * @param logSize Tamaño en bytes del log (mínimo permitido 1kb)
 	 */
 	public void setLogSize(long logSize)
 	{
 		this.logSize = (logSize < MIN_LOG_SIZE) ? MIN_LOG_SIZE : logSize;
+		AsyncLogWriter writer = async;
+		if(writer != null)
+		{
+			writer.setLogSize(this.logSize);
+		}
 	}
 	
 	/**
-	 * Obtener el tamao mximo en bytes del archivo de log
-	 * @return Tamao mximo del log
+	 * Obtener el tamaño máximo en bytes del archivo de log
+	 * @return Tamaño máximo del log
 	 */
 	public long getLogSize()
 	{
@@ -318,8 +448,45 @@ public class LogTools
 	}
 
 	/**
-	 * Establecer la mxima longitud de lnes del log
-	 * @param maxLineLen Establecer la mxima longitus de lnea del log
+	 * Establecer la cantidad de archivos de log viejos que se guardan (archivo.old, archivo.old.2, ...)
+	 * @param logCount Cantidad de archivos viejos (mínimo 1)
+	 */
+	public void setLogCount(int logCount)
+	{
+		rotator.setCount(logCount);
+	}
+
+	/**
+	 * Obtener la cantidad de archivos de log viejos que se guardan
+	 * @return Cantidad de archivos viejos
+	 */
+	public int getLogCount()
+	{
+		return rotator.getCount();
+	}
+
+	/**
+	 * Establecer si se comprimen con gzip los archivos de log viejos (se agrega .gz al nombre). La compresión se
+	 * hace en un hilo aparte
+	 * @param compressOld true para comprimir
+	 */
+	public void setCompressOld(boolean compressOld)
+	{
+		rotator.setCompress(compressOld);
+	}
+
+	/**
+	 * Saber si se comprimen los archivos de log viejos
+	 * @return true/false
+	 */
+	public boolean isCompressOld()
+	{
+		return rotator.isCompress();
+	}
+
+	/**
+	 * Establecer la máxima longitud de línes del log
+	 * @param maxLineLen Establecer la máxima longitus de línea del log
 	 */
 	public void setMaxLineLen(int maxLineLen)
 	{
@@ -327,7 +494,7 @@ public class LogTools
 	}
 
 	/**
-	 * Escribir en el log una cadena en la categora de informacin
+	 * Escribir en el log una cadena en la categoría de información
 	 * @param str Cadena a logear
 	 */
 	public void info(String str)
@@ -336,15 +503,14 @@ public class LogTools
 		{
 			return;
 		}
-		if(!logFile.isEmpty() && logLevel.intValue() <= Level.INFO.intValue())
+		if(isEnabled(Level.INFO))
 		{
-			TestLogSize();
-			LOGGER.log(Level.INFO, str);
+			log(Level.INFO, str);
 		}
 	}
 
 	/**
-	 * Escribir en el log una cadena en la categora de advertencia
+	 * Escribir en el log una cadena en la categoría de advertencia
 	 * @param str Cadena a logear
 	 */
 	public void war(String str)
@@ -353,15 +519,14 @@ public class LogTools
 		{
 			return;
 		}
-		if(!logFile.isEmpty() && logLevel.intValue() <= Level.WARNING.intValue())
+		if(isEnabled(Level.WARNING))
 		{
-			TestLogSize();
-			LOGGER.log(Level.WARNING, str);
+			log(Level.WARNING, str);
 		}
 	}
 
 	/**
-	 * Escribir en el log una cadena en la categora de error
+	 * Escribir en el log una cadena en la categoría de error
 	 * @param str Cadena a logear
 	 */
 	public void err(String str)
@@ -370,30 +535,162 @@ public class LogTools
 		{
 			return;
 		}
-		if(!logFile.isEmpty() && logLevel.intValue() <= Level.SEVERE.intValue())
+		if(isEnabled(Level.SEVERE))
 		{
-			TestLogSize();
-			LOGGER.log(Level.SEVERE, str);
+			log(Level.SEVERE, str);
 		}
 	}
 
 	/**
-	 * Escribir en el log una cadena en la categora de error
+	 * Escribir en el log una cadena en la categoría de error
 	 * @param e Error a logear
 	 */
 	public void err(Throwable e)
 	{
-		if(!logFile.isEmpty() && logLevel.intValue() <= Level.SEVERE.intValue())
+		if(isEnabled(Level.SEVERE))
 		{
-			TestLogSize();
-			LOGGER.log(Level.SEVERE, stackTraceToString(e));
+			log(Level.SEVERE, stackTraceToString(e));
 		}
 	}
 	
+	/**
+	 * Escribir una línea en el log, en el modo asincrónico sólo se formatea y se encola. En el modo sincrónico se
+	 * escribe con el lock de la instancia (los handlers ya escriben de a una línea), para no cruzarse con el cambio de
+	 * modo de startAsync y stopAsync
+	 * @param level Nivel
+	 * @param str Cadena a logear
+	 */
+	private void log(Level level, String str)
+	{
+		AsyncLogWriter writer = async;
+		if(writer == null)
+		{
+			synchronized(this)
+			{
+				writer = async;
+				if(writer == null)
+				{
+					TestLogSize();
+					LOGGER.log(level, str);
+					return;
+				}
+			}
+		}
+		if(!writer.offer(formatter.encode(level, System.currentTimeMillis(), str)))
+		{
+			// El escritor se está cerrando: se espera a que stopAsync termine y se escribe en el modo actual. Si lo
+			// cerró la terminación de la JVM sigue siendo el actual y la línea se pierde
+			synchronized(this)
+			{
+				if(async != writer)
+				{
+					log(level, str);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pasar al modo asincrónico: las líneas se encolan y un hilo aparte las escribe por lotes en el archivo y en la
+	 * consola. Al terminar la JVM se escriben las líneas pendientes
+	 * @param capacity Cantidad máxima de líneas en espera
+	 * @param overflow Política cuando la cola está llena
+	 * @return true si se inició, false si ya estaba en modo asincrónico o hay error
+	 */
+	public synchronized boolean startAsync(int capacity, ELogOverflow overflow)
+	{
+		if(async != null)
+		{
+			return false;
+		}
+		AsyncLogWriter writer;
+		try
+		{
+			writer = new AsyncLogWriter(logFile, rotator, logSize, formatter, capacity, overflow);
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+			return false;
+		}
+		// Los handlers se quitan después de publicar el escritor, para que las líneas sincrónicas no queden sin destino
+		writer.start();
+		async = writer;
+		fileHandler.flush();
+		fileHandler.close();
+		LOGGER.removeHandler(fileHandler);
+		consoleHandler.flush();
+		LOGGER.removeHandler(consoleHandler);
+		return true;
+	}
+
+	/**
+	 * Volver al modo sincrónico, después de escribir las líneas pendientes
+	 */
+	public synchronized void stopAsync()
+	{
+		AsyncLogWriter writer = async;
+		if(writer == null)
+		{
+			return;
+		}
+		// Los handlers se agregan antes de soltar el escritor: las líneas que éste rechaza al cerrarse esperan a que
+		// termine stopAsync y se escriben en modo sincrónico
+		writer.close();
+		LOGGER.addHandler(consoleHandler);
+		addFileHandler();
+		async = null;
+	}
+
+	/**
+	 * Saber si el log está en modo asincrónico
+	 * @return true/false
+	 */
+	public boolean isAsync()
+	{
+		return async != null;
+	}
+
+	/**
+	 * Escribir las líneas pendientes. En modo asincrónico espera a que se escriban las encoladas hasta el momento
+	 */
+	public void flush()
+	{
+		AsyncLogWriter writer = async;
+		if(writer != null)
+		{
+			writer.flush();
+			return;
+		}
+		consoleHandler.flush();
+		fileHandler.flush();
+	}
+
+	/**
+	 * Obtener la cantidad de líneas descartadas en modo asincrónico por tener la cola llena, sólo se cuentan con
+	 * ELogOverflow.DROP_AND_COUNT
+	 * @return Cantidad de líneas descartadas
+	 */
+	public long getDropped()
+	{
+		AsyncLogWriter writer = async;
+		return (writer != null) ? writer.getDropped() : 0;
+	}
+
+	/**
+	 * Saber si se escriben en el log los mensajes de un nivel
+	 * @param level Nivel del mensaje
+	 * @return true/false
+	 */
+	public boolean isEnabled(Level level)
+	{
+		return !logFile.isEmpty() && logLevel.intValue() <= level.intValue();
+	}
+
 	/**
 	 * Establecer el nivel de log
 	 * Level.ALL: Todo
-	 * Level.INFO: Hasta nivel de informacin
+	 * Level.INFO: Hasta nivel de información
 	 * Level.WARNING: hasta nivel de advertencias
 	 * Level.SEVERE: Solo logear errores
 	 * Level.OFF: Desactivar el log
@@ -1,8 +1,10 @@
 package com.mlf.tools;
 
+import java.util.Arrays;
+
 /**
  * Clase con funciones de manejo de cadenas
- * Las funciones de conversin siguen los nombres:
+ * Las funciones de conversión siguen los nombres:
  * xxx2yyy donde xxx y yyy pueden valer:
  * Num: Entero (p.e: 1234)
  * Str: String (p.e: "1234")
@@ -38,7 +40,7 @@ public class StrUtils
 	/**
 	 * Establecer el valor del caracter en una cadena
 	 * @param src Cadena de origen
-	 * @param pos Posicin a cambiar
+	 * @param pos Posición a cambiar
 	 * @param car Caracter
 	 * @return Cadena modificada
 	 */
@@ -74,7 +76,7 @@ public class StrUtils
 	/**
 	 * Obtener un sub array de bytes
 	 * @param in Array de entrada
-	 * @param from ndice de inicio
+	 * @param from Índice de inicio
 	 * @return Sub array
 	 */
 	public static byte[] sub(byte[] in, int from)
@@ -98,8 +100,8 @@ public class StrUtils
 	/**
 	 * Obtener un sub array de bytes
 	 * @param in Array de entrada
-	 * @param from ndice de inicio
-	 * @param to ndice final
+	 * @param from Índice de inicio
+	 * @param to índice final
 	 * @return Sub array
 	 */
 	public static byte[] sub(byte[] in, int from, int to)
@@ -158,13 +160,13 @@ public class StrUtils
 		return out.toString();
 	}
 	
-	//---------------- Conversin -----------------------------------------------------------------
+	//---------------- Conversión -----------------------------------------------------------------
 
 	/**
-	 * Valor numrico a cadena que lo representa (p.e. 123 -> "123")
+	 * Valor numérico a cadena que lo representa (p.e. 123 -> "123")
 	 * @param value Valor entero
 	 * @param len Longitud de la cadena de salida, se rellena con ceros a la izquierda o se recorta para ajustar
-	 * @return Cadena que representa el valor numrico
+	 * @return Cadena que representa el valor numérico
 	 */
 	public static String toString(int value, int len)
 	{
@@ -172,10 +174,10 @@ public class StrUtils
 	}
 
 	/**
-	 * Valor numrico a cadena que lo representa (p.e. 123 -> "123")
+	 * Valor numérico a cadena que lo representa (p.e. 123 -> "123")
 	 * @param value Valor entero
 	 * @param len Longitud de la cadena de salida, se rellena con ceros a la izquierda o se recorta para ajustar
-	 * @return Cadena que representa el valor numrico
+	 * @return Cadena que representa el valor numérico
 	 */
 	public static String toString(long value, int len)
 	{
@@ -183,10 +185,10 @@ public class StrUtils
 	}
 
 	/**
-	 * Valor numrico a cadena hexa que lo representa 1234 (= 4D2) -> "4D2"
+	 * Valor numérico a cadena hexa que lo representa 1234 (= 4D2) -> "4D2"
 	 * @param value Valor entero
 	 * @param len Longitud de la cadena de salida, se rellena con ceros a la izquierda o se recorta para ajustar
-	 * @return Cadena hexadecimal que representa el valor numrico
+	 * @return Cadena hexadecimal que representa el valor numérico
 	 */
 	public static String toHexString(int value, int len)
 	{
@@ -194,10 +196,10 @@ public class StrUtils
 	}
 
 	/**
-	 * Valor numrico a cadena hexa que lo representa 1234 (= 4D2) -> "4D2"
+	 * Valor numérico a cadena hexa que lo representa 1234 (= 4D2) -> "4D2"
 	 * @param value Valor entero
 	 * @param len Longitud de la cadena de salida, se rellena con ceros a la izquierda o se recorta para ajustar
-	 * @return Cadena hexadecimal que representa el valor numrico
+	 * @return Cadena hexadecimal que representa el valor numérico
 	 */
 	public static String toHexString(long value, int len)
 	{
@@ -226,40 +228,36 @@ public class StrUtils
 		{
 			return strOf('0', 2*len);
 		}
-		int hight, low, i;
-		StringBuilder out = new StringBuilder();
+		char[] out = new char[2*len];
 		if(buf.length < len)
 		{
 			int lenToAdd = (len - buf.length)*2;
-			for(i = 0; i < lenToAdd; ++i)
-			{
-				out.append('0');
-			}
-			for(i = 0; i < buf.length; ++i)
-			{
-				hight = (buf[i] >> 4) & 0x0F;
-				low = buf[i] & 0x0F;
-				out.append(HEX_DIGITS[hight]);
-				out.append(HEX_DIGITS[low]);
-			}
+			Arrays.fill(out, 0, lenToAdd, '0');
+			CodecTools.toHex(buf, 0, buf.length, out, lenToAdd);
 		}
 		else
 		{
-			for(i = buf.length - len; i < buf.length; ++i)
-			{
-				hight = (buf[i] >> 4) & 0x0F;
-				low = buf[i] & 0x0F;
-				out.append(HEX_DIGITS[hight]);
-				out.append(HEX_DIGITS[low]);
-			}
+			CodecTools.toHex(buf, buf.length - len, len, out, 0);
 		}
-		return out.toString();
+		return new String(out);
 	}
 
 	/**
-	 * Convertir un nmero a buffer BCD 12345 -> [01 23 45]
-	 * @param value Nmero
-	 * @param digits Dgitos del nmero BCD
+	 * Convertir un rango de un array de bytes a una cadena hexadecimal (p.e. [24 A0 F1] -> "24A0F1")
+	 * @param buf Array de bytes
+	 * @param offset Posición de inicio
+	 * @param len Cantidad de bytes a convertir
+	 * @return Cadena hexa
+	 */
+	public static String toHexString(byte[] buf, int offset, int len)
+	{
+		return CodecTools.toHexString(buf, offset, len);
+	}
+
+	/**
+	 * Convertir un número a buffer BCD 12345 -> [01 23 45]
+	 * @param value Número
+	 * @param digits Dígitos del número BCD
 	 * @return Array de bytes BCD
 	 */
 	public static byte[] toBCD(int value, int digits)
@@ -268,14 +266,20 @@ public class StrUtils
 	}
 
 	/**
-	 * Convertir un nmero a buffer BCD 12345 -> [01 23 45]
-	 * @param value Nmero
+	 * Convertir un número a buffer BCD 12345 -> [01 23 45]
+	 * @param value Número
 	 * @param lenout Largo del buffer de salida
 	 * @return Array de bytes BCD
 	 */
 	public static byte[] toBCD(long value, int lenout)
 	{
-		return HexStr2Buf(toString(value, 2*lenout));
+		if(value < 0)
+		{
+			return HexStr2Buf(toString(value, 2*lenout));
+		}
+		byte[] out = new byte[lenout];
+		CodecTools.putBcd(value, out, 0, lenout);
+		return out;
 	}
 	
 	/**
@@ -285,7 +289,8 @@ public class StrUtils
 	 */
 	public static int BCD2Int(byte in)
 	{
-		return BCD2Int(new byte[] {in});
+		int value = CodecTools.bcd(in);
+		return (value >= 0) ? value : BCD2Int(new byte[] {in});
 	}
 	
 	/**
@@ -295,6 +300,14 @@ public class StrUtils
 	 */
 	public static int BCD2Int(byte[] in)
 	{
+		if((in != null) && (in.length > 0) && (in.length <= 4))
+		{
+			long value = CodecTools.bcdToLong(in, 0, in.length);
+			if(value >= 0)
+			{
+				return (int) value;
+			}
+		}
 		return Integer.parseInt(toHexString(in));
 	}
 
@@ -305,7 +318,7 @@ public class StrUtils
 	 */
 	public static long BCD2Long(byte in)
 	{
-		return BCD2Long(new byte[] {in});
+		return BCD2Int(in);
 	}
 	
 	/**
@@ -315,6 +328,14 @@ public class StrUtils
 	 */
 	public static long BCD2Long(byte[] in)
 	{
+		if((in != null) && (in.length > 0) && (in.length <= 9))
+		{
+			long value = CodecTools.bcdToLong(in, 0, in.length);
+			if(value >= 0)
+			{
+				return value;
+			}
+		}
 		return Long.parseLong(toHexString(in));
 	}
 
@@ -343,7 +364,7 @@ public class StrUtils
 	 * Convertir una cadena hexa a un array de bytes
 	 * @param hexString Cadena hexa
 	 * @param padCar Caracter de padeo
-	 * @param align Tipo de alineacin
+	 * @param align Tipo de alineación
 	 * @return Array de bytes
 	 */
 	public static byte[] HexStr2Buf(byte[] hexString, char padCar, EAlign align)
@@ -353,7 +374,6 @@ public class StrUtils
 			return new byte[0];
 		}
 		boolean pad = (hexString.length%2 == 1);
-		int high, low;
 		int lenin, lenout;
 		byte[] in, out;
 		if(pad)
@@ -368,12 +388,7 @@ public class StrUtils
 		}
 		lenout = lenin/2;
 		out = new byte[lenout];
-		for(int i = 0; i < lenout; ++i)
-		{
-			high = HexChar2Buf(in[  2*i ]);
-			low  = HexChar2Buf(in[2*i + 1]);
-			out[i] = (byte) (((high << 4) & 0xF0) + (low & 0x0F));
-		}
+		CodecTools.fromHexAscii(in, 0, lenin, out, 0);
 		return out;
 	}
 
@@ -381,26 +396,19 @@ public class StrUtils
 	 * Convertir una cadena hexa a un array de bytes
 	 * @param hex Cadena hexa
 	 * @param padCar Caracter de padeo
-	 * @param align Tipo de alineacin
+	 * @param align Tipo de alineación
 	 * @return Array de bytes
 	 */
 	public static byte[] HexStr2Buf(String hex, char padCar, EAlign align)
 	{
 		hex = padToEven(hex, padCar, align);
-		int lenout = hex.length()/2;
-		byte[] out = new byte[lenout];
-		int high, low;
-		for(int i = 0; i < lenout; ++i)
-		{
-			high = HexChar2Buf(hex.charAt(2*i));
-			low = HexChar2Buf(hex.charAt(2*i + 1));
-			out[i] = (byte) (((high << 4) & 0xF0) + (low & 0x0F));
-		}
+		byte[] out = new byte[hex.length()/2];
+		CodecTools.fromHex(hex, 0, hex.length(), out, 0);
 		return out;
 	}
 
 	/**
-	 * Determinal si un caracter es un dgito hexadecimal ('1'...'9', 'A'/'a'...'F'/'f')
+	 * Determinal si un caracter es un dígito hexadecimal ('1'...'9', 'A'/'a'...'F'/'f')
 	 * @param car Caracter
 	 * @return true/false
 	 */
@@ -422,8 +430,8 @@ public class StrUtils
 	}
 
 	/**
-	 * Convertir un dgito hexadecimal (0 a 15) en un caracter representativo
-	 * @param digit Dgito hexadecimal
+	 * Convertir un dígito hexadecimal (0 a 15) en un caracter representativo
+	 * @param digit Dígito hexadecimal
 	 * @return Caracter
 	 */
 	public static char HexDigit2Char(int digit)
@@ -442,26 +450,14 @@ public class StrUtils
 	 */
 	public static int HexChar2Buf(int car)
 	{
-		if(car >= '0' && car <= '9')
-		{
-			return (car - '0');	
-		}
-		if(car >= 'A' && car <= 'F')
-		{
-			return (10 + car - 'A');
-		}
-		if(car >= 'a' && car <= 'f')
-		{
-			return (10 + car - 'a');
-		}
-		return (car & 0x0f);
+		return CodecTools.nibble(car);
 	}
 
 	/**
-	 * Pasar un nmero a un array de byte 5874 (= 0x16F2) -> [00 00 16 F2] (len = 4)
-	 * @param value Nmero
+	 * Pasar un número a un array de byte 5874 (= 0x16F2) -> [00 00 16 F2] (len = 4)
+	 * @param value Número
 	 * @param len Longitud en bytes del buffer de salida
-	 * @return Buffer con el nmero
+	 * @return Buffer con el número
 	 */
 	public static byte[] Num2Buf(int value, int len)
 	{
@@ -480,9 +476,25 @@ public class StrUtils
 		{
 			return "";
 		}
+		if((len > 0) && (len <= data.length))
+		{
+			return HexDump.toString(data, 0, len);
+		}
 		byte[] buf = new byte[len];
 		StrUtils.copy(buf, data, len);
-		return HexStrToLog(toHexString(buf));
+		return HexDump.toString(buf, 0, len);
+	}
+
+	/**
+	 * Convertir un rango de un array de bytes en una cadena que se pueda logear
+	 * @param data Array de bytes
+	 * @param offset Posición del primer byte
+	 * @param len Cantidad de bytes
+	 * @return Cadena apta para log
+	 */
+	public static String Buf2Log(byte[] data, int offset, int len)
+	{
+		return HexDump.toString(data, offset, len);
 	}
 
 	/**
@@ -507,62 +519,50 @@ public class StrUtils
 			return "";
 		}
 		int inputLen = str.length();
-		int lines = inputLen/(2*LOG_COLUMNS);
-		String output = "";
-		
-		if(inputLen%(2*LOG_COLUMNS) > 0)
-		{
-			lines += 1;
-		}
-		for(int i = 0; i < lines; ++i)
-		{
-			output += HexStrToLogLine(str.substring(i*2*LOG_COLUMNS));
-		}
-		return output;		
-	}
-
-	private static String HexStrToLogLine(String str)
-	{
-		int inputLen = str.length();
-		String output = "";
-		boolean hasEOL = (str.length() > 2*LOG_COLUMNS);
-		for(int i = 0; i < LOG_COLUMNS; ++i)
-		{
-			if(2*i < inputLen)
-			{
-				output += str.substring(2*i, 2*(i + 1));
-			}
-			else
-			{
-				output += "  ";
-			}
-			output += " ";
-		}
-		for(int i = 0; i < LOG_COLUMNS; ++i)
+		StringBuilder output = new StringBuilder(HexDump.size((inputLen + 1)/2));
+		for(int start = 0; start < inputLen; start += 2*LOG_COLUMNS)
 		{
-			if(2*i < inputLen)
+			int count = Math.min(LOG_COLUMNS, (inputLen - start + 1)/2);
+			for(int i = 0; i < LOG_COLUMNS; ++i)
 			{
-				String strByte = str.substring(2*i, 2*(i + 1));
-				int value = Integer.parseInt(strByte, 16);
-				if((value < 32) || (value > 127))
+				if(i < count)
 				{
-					output += ".";
+					output.append(str, start + 2*i, start + 2*(i + 1));
 				}
 				else
 				{
-					output += ((char) value);
+					output.append("  ");
 				}
+				output.append(' ');
 			}
-			else
+			for(int i = 0; i < count; ++i)
 			{
-				break;
+				int value = HexPairValue(str, start + 2*i);
+				output.append(((value < 32) || (value > 127)) ? '.' : (char) value);
+			}
+			if(inputLen - start > 2*LOG_COLUMNS)
+			{
+				output.append('\n');
 			}
 		}
-		if(hasEOL)
+		return output.toString();
+	}
+
+	/**
+	 * Valor de un par de caracteres hexa
+	 * @param str Cadena hexadecimal
+	 * @param pos Posición del par
+	 * @return Valor
+	 */
+	private static int HexPairValue(String str, int pos)
+	{
+		int high = Character.digit(str.charAt(pos), 16);
+		int low = Character.digit(str.charAt(pos + 1), 16);
+		if((high < 0) || (low < 0))
 		{
-			output += '\n';
+			return Integer.parseInt(str.substring(pos, pos + 2), 16);
 		}
-		return output;
+		return (high << 4) | low;
 	}
 
 	//----- Adjust --------------------------------------------------------------------------------
@@ -571,7 +571,7 @@ public class StrUtils
 	 * Ajustar una cadena al largo dado rellenando o recortando
 	 * @param str Cadena
 	 * @param newlen Nuevo largo
-	 * @param align Alineacin
+	 * @param align Alineación
 	 * @param car Caracter de relleno
 	 * @return Cadena ajustada
 	 */
@@ -608,7 +608,7 @@ public class StrUtils
 	}
 
 	/**
-	 * Ajustar una cadena de nmeros al largo dado, agregando ceros a la izquierda o recortando los ltimos caracteres
+	 * Ajustar una cadena de números al largo dado, agregando ceros a la izquierda o recortando los últimos caracteres
 	 * @param str Cadena
 	 * @param newlen Nuevo largo
 	 * @return Cadena ajustada
@@ -646,7 +646,7 @@ public class StrUtils
 	}
 	
 	/**
-	 * ltimos caracteres de la cadena
+	 * Últimos caracteres de la cadena
 	 * @param str Cadena
 	 * @param len Cantidad de caracteres
 	 * @return Cadena recortada
@@ -664,7 +664,7 @@ public class StrUtils
 	 * Padear una cadena a una cantidad par de caracteres
 	 * @param str Cadena
 	 * @param padCar Caracter de padeo
-	 * @param align Alineacin
+	 * @param align Alineación
 	 * @return Cadena padeada
 	 */
 	public static String padToEven(String str, char padCar, EAlign align)
@@ -677,11 +677,11 @@ public class StrUtils
 	}
 
 	/**
-	 * Obtener una versin padeada a la derecha del array pasado 
+	 * Obtener una versión padeada a la derecha del array pasado 
 	 * @param in Array original
 	 * @param newlen Nueva longitud en bytes
 	 * @param car Caracter de padeo
-	 * @return Versin padeada del array de origen
+	 * @return Versión padeada del array de origen
 	 */
 	public static String padRight(String in, int newlen, char car)
 	{
@@ -693,11 +693,11 @@ public class StrUtils
 	}
 
 	/**
-	 * Obtener una versin padeada a la derecha del array pasado 
+	 * Obtener una versión padeada a la derecha del array pasado 
 	 * @param in Array original
 	 * @param newlen Nueva longitud en bytes
 	 * @param car Caracter de padeo
-	 * @return Versin padeada del array de origen
+	 * @return Versión padeada del array de origen
 	 */
 	public static byte[] padRight(byte[] in, int newlen, int car)
 	{
@@ -723,7 +723,7 @@ public class StrUtils
 				out[i] = (byte) car;
 			}
 		}
-		// El nuevo largo en ms corto, copio hasta donde entre
+		// El nuevo largo en más corto, copio hasta donde entre
 		else
 		{
 			for(i = 0; i < newlen; ++i)
@@ -735,11 +735,11 @@ public class StrUtils
 	}
 
 	/**
-	 * Obtener una versin padeada a la derecha del array pasado 
+	 * Obtener una versión padeada a la derecha del array pasado 
 	 * @param in Array original
 	 * @param newlen Nueva longitud en bytes
 	 * @param car Caracter de padeo
-	 * @return Versin padeada del array de origen
+	 * @return Versión padeada del array de origen
 	 */
 	public static String padLeft(String in, int newlen, char car)
 	{
@@ -751,11 +751,11 @@ public class StrUtils
 	}
 
 	/**
-	 * Obtener una versin padeada a la derecha del array pasado 
+	 * Obtener una versión padeada a la derecha del array pasado 
 	 * @param in Array original
 	 * @param newlen Nueva longitud en bytes
 	 * @param car Caracter de padeo
-	 * @return Versin padeada del array de origen
+	 * @return Versión padeada del array de origen
 	 */
 	public static byte[] padLeft(byte[] in, int newlen, int car)
 	{
@@ -853,7 +853,7 @@ public class StrUtils
 	//----- Compare -------------------------------------------------------------------------------
 	
 	/**
-	 * Comprobar si el array de bytes representa una cadena vaca
+	 * Comprobar si el array de bytes representa una cadena vacía
 	 * @param str Array de bytes
 	 * @return true/false
 	 */
@@ -863,7 +863,7 @@ public class StrUtils
 	}
 
 	/**
-	 * Comprobar si el array de bytes representa una cadena vaca
+	 * Comprobar si el array de bytes representa una cadena vacía
 	 * @param str Array de bytes
 	 * @param len Largo a comprobar
 	 * @return true/false
@@ -896,7 +896,7 @@ public class StrUtils
 	 * Comparar dos arrays de bytes
 	 * @param str1 Primer array
 	 * @param str2 Segundo array
-	 * @return Resultado de la comparacin
+	 * @return Resultado de la comparación
 	 */
 	public static int cmp(byte[] str1, byte[] str2)
 	{
@@ -914,7 +914,7 @@ public class StrUtils
 	 * @param str1 Primer array
 	 * @param str2 Segundo array
 	 * @param len Longitud a comprar
-	 * @return Resultado de la comparacin
+	 * @return Resultado de la comparación
 	 */
 	public static int cmp(byte[] str1, byte[] str2, int len)
 	{
@@ -7,7 +7,7 @@ public enum EDataType
 {
 	/** No definido */
 	UNDEFINED,
-	/** Numerico empaquetado BCD, por ejemplo: "12345" -> [12 34 50]  [01 23 45] (len = 5) */
+	/** Numerico empaquetado BCD, por ejemplo: "12345" -> [12 34 50] ó [01 23 45] (len = 5) */
 	BCD,
 	/** Datos binarios, por ejemplo "C1A118" -> [C1 A1 18] (len = 3) */
 	BINARY,
@@ -130,14 +130,156 @@ public enum EField
 	FIELD_58			(58),
 	/** Reserved for national use, products */
 	FIELD_59			(59),
-	/** Advice/reason code (private reserved), versin, trace, terminal id, etc */
+	/** Advice/reason code (private reserved), versión, trace, terminal id, etc */
 	FIELD_60			(60),
 	/** Reserved Private, fecha posdatado/monto */
 	FIELD_61			(61),
 	/** Reserved Private, roc number */
 	FIELD_62			(62),
 	/** Reserved Private, datos cierre de lote */
-	FIELD_63			(63);
+	FIELD_63			(63),
+	/** Message authentication code (MAC) */
+	MAC					(64),
+	/** Extended bitmap indicator */
+	FIELD_65			(65),
+	/** Settlement code */
+	SETTLEMENT_CODE		(66),
+	/** Extended payment code */
+	EXT_PAYMENT_CODE	(67),
+	/** Receiving institution country code */
+	RCV_COUNTRY_CODE	(68),
+	/** Settlement institution country code */
+	SET_COUNTRY_CODE	(69),
+	/** Network management information code */
+	NETWORK_MGMT_CODE	(70),
+	/** Message number */
+	MESSAGE_NUMBER		(71),
+	/** Message number, last */
+	MESSAGE_NUMBER_LAST	(72),
+	/** Date, action (yyMMdd) */
+	DATE_ACTION			(73),
+	/** Credits, number */
+	CREDITS_NUMBER		(74),
+	/** Credits, reversal number */
+	CREDITS_REV_NUMBER	(75),
+	/** Debits, number */
+	DEBITS_NUMBER		(76),
+	/** Debits, reversal number */
+	DEBITS_REV_NUMBER	(77),
+	/** Transfer, number */
+	TRANSFER_NUMBER		(78),
+	/** Transfer, reversal number */
+	TRANSFER_REV_NUMBER	(79),
+	/** Inquiries, number */
+	INQUIRIES_NUMBER	(80),
+	/** Authorizations, number */
+	AUTHORIZATIONS_NUMBER	(81),
+	/** Credits, processing fee amount */
+	CREDITS_PR_FEE		(82),
+	/** Credits, transaction fee amount */
+	CREDITS_TRX_FEE		(83),
+	/** Debits, processing fee amount */
+	DEBITS_PR_FEE		(84),
+	/** Debits, transaction fee amount */
+	DEBITS_TRX_FEE		(85),
+	/** Credits, amount */
+	CREDITS_AMOUNT		(86),
+	/** Credits, reversal amount */
+	CREDITS_REV_AMOUNT	(87),
+	/** Debits, amount */
+	DEBITS_AMOUNT		(88),
+	/** Debits, reversal amount */
+	DEBITS_REV_AMOUNT	(89),
+	/** Original data elements */
+	ORIGINAL_DATA		(90),
+	/** File update code */
+	FILE_UPDATE_CODE	(91),
+	/** File security code */
+	FILE_SECURITY_CODE	(92),
+	/** Response indicator */
+	RESPONSE_INDICATOR	(93),
+	/** Service indicator */
+	SERVICE_INDICATOR	(94),
+	/** Replacement amounts */
+	REPLACEMENT_AMOUNTS	(95),
+	/** Message security code */
+	MESSAGE_SECURITY_CODE	(96),
+	/** Amount, net settlement */
+	AMOUNT_NET_SET		(97),
+	/** Payee */
+	PAYEE				(98),
+	/** Settlement institution identification code */
+	SET_ID_CODE			(99),
+	/** Receiving institution identification code */
+	RCV_ID_CODE			(100),
+	/** File name */
+	FILE_NAME			(101),
+	/** Account identification 1 */
+	ACCOUNT_ID_1		(102),
+	/** Account identification 2 */
+	ACCOUNT_ID_2		(103),
+	/** Transaction description */
+	TRX_DESCRIPTION		(104),
+	/** Reserved ISO */
+	FIELD_105			(105),
+	/** Reserved ISO */
+	FIELD_106			(106),
+	/** Reserved ISO */
+	FIELD_107			(107),
+	/** Reserved ISO */
+	FIELD_108			(108),
+	/** Reserved ISO */
+	FIELD_109			(109),
+	/** Reserved ISO */
+	FIELD_110			(110),
+	/** Reserved ISO */
+	FIELD_111			(111),
+	/** Reserved National */
+	FIELD_112			(112),
+	/** Reserved National */
+	FIELD_113			(113),
+	/** Reserved National */
+	FIELD_114			(114),
+	/** Reserved National */
+	FIELD_115			(115),
+	/** Reserved National */
+	FIELD_116			(116),
+	/** Reserved National */
+	FIELD_117			(117),
+	/** Reserved National */
+	FIELD_118			(118),
+	/** Reserved National */
+	FIELD_119			(119),
+	/** Reserved Private */
+	FIELD_120			(120),
+	/** Reserved Private */
+	FIELD_121			(121),
+	/** Reserved Private */
+	FIELD_122			(122),
+	/** Reserved Private */
+	FIELD_123			(123),
+	/** Reserved Private */
+	FIELD_124			(124),
+	/** Reserved Private */
+	FIELD_125			(125),
+	/** Reserved Private */
+	FIELD_126			(126),
+	/** Reserved Private */
+	FIELD_127			(127),
+	/** Message authentication code (MAC), secondary bitmap */
+	MAC_2				(128);
+
+	private static final EField[] BY_NUMBER = new EField[130];	// Campos según su número + 1
+	static
+	{
+		for(EField type : EField.values())
+		{
+			if(type.index() >= 0)
+			{
+				BY_NUMBER[type.index()] = type;
+			}
+		}
+	}
 
 	int number;
 	EField(int number)
@@ -163,25 +305,22 @@ public enum EField
 	}
 
 	/**
-	 * Obtener el elemento del enum a partir de nmero del campo
-	 * @param number Nmero de campo (0 a 63)
+	 * Obtener el elemento del enum a partir de número del campo
+	 * @param number Número de campo (-1 a 128)
 	 * @return Elemento del enum
 	 */
 	public static EField fromNumber(int number)
 	{
-		for(EField type : EField.values())
+		if((number + 1 < 0) || (number + 1 >= BY_NUMBER.length))
 		{
-			if(type.number == number)
-			{
-				return type;
-			}
+			return UNDEFINED;
 		}
-		return UNDEFINED;
+		return BY_NUMBER[number + 1];
 	}
 
 	/**
-	 * Obtener el nmero de campo
-	 * @return Nmero de campo
+	 * Obtener el número de campo
+	 * @return Número de campo
 	 */
 	public int number()
 	{
@@ -189,8 +328,8 @@ public enum EField
 	}
 	
 	/**
-	 * Obtener el ndice del campo
-	 * @return ndice del campo
+	 * Obtener el índice del campo
+	 * @return Índice del campo
 	 */
 	public int index()
 	{
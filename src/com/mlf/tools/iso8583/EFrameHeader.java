@@ -0,0 +1,120 @@
+package com.mlf.tools.iso8583;
+
+/**
+ * Encabezado de largo que precede a cada mensaje en un flujo (antes del TPDU)
+ * @author Mario
+ */
+public enum EFrameHeader
+{
+	/** Sin encabezado, el fin del mensaje se determina por sus campos */
+	NONE		(0, Integer.MAX_VALUE),
+	/** Largo binario de 2 bytes (big endian), por ejemplo 300 -> [01 2C] */
+	BINARY_2	(2, 0xFFFF),
+	/** Largo numérico ASCII de 4 dígitos, por ejemplo 300 -> "0300" */
+	ASCII_4		(4, 9999);
+
+	private final int size;		// Bytes del encabezado
+	private final int maxLen;	// Máximo largo de mensaje representable
+
+	EFrameHeader(int size, int maxLen)
+	{
+		this.size = size;
+		this.maxLen = maxLen;
+	}
+
+	/**
+	 * Obtener los bytes que ocupa el encabezado
+	 * @return Bytes del encabezado
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Obtener el máximo largo de mensaje que admite el encabezado
+	 * @return Máximo largo de mensaje
+	 */
+	public int getMaxLen()
+	{
+		return maxLen;
+	}
+
+	/**
+	 * Leer el largo del mensaje desde un encabezado completo
+	 * @param data Array con el encabezado
+	 * @param offset Posición del encabezado
+	 * @return Largo del mensaje, -1 si el encabezado no es válido
+	 */
+	public int decode(byte[] data, int offset)
+	{
+		switch(this)
+		{
+			case BINARY_2:
+				return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+			case ASCII_4:
+				int value = 0;
+				for(int i = offset; i < offset + 4; ++i)
+				{
+					if((data[i] < '0') || (data[i] > '9'))
+					{
+						return -1;
+					}
+					value = value*10 + (data[i] - '0');
+				}
+				return value;
+			case NONE:
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Escribir el encabezado para un largo de mensaje
+	 * @param len Largo del mensaje
+	 * @param data Array de destino
+	 * @param offset Posición del encabezado
+	 * @return Bytes escritos, 0 si el largo no entra en el encabezado
+	 */
+	public int encode(int len, byte[] data, int offset)
+	{
+		if((len < 0) || (len > maxLen))
+		{
+			return 0;
+		}
+		switch(this)
+		{
+			case BINARY_2:
+				data[offset] = (byte) (len >>> 8);
+				data[offset + 1] = (byte) len;
+				break;
+			case ASCII_4:
+				data[offset] = (byte) ('0' + len/1000);
+				data[offset + 1] = (byte) ('0' + (len/100)%10);
+				data[offset + 2] = (byte) ('0' + (len/10)%10);
+				data[offset + 3] = (byte) ('0' + len%10);
+				break;
+			case NONE:
+			default:
+				break;
+		}
+		return size;
+	}
+
+	/**
+	 * Obtener el elemento del enum a partir del nombre
+	 * @param name Nombre
+	 * @return Elemento del enum
+	 */
+	public static EFrameHeader fromName(String name)
+	{
+		for(EFrameHeader type : EFrameHeader.values())
+		{
+			if(type.name().equalsIgnoreCase(name))
+			{
+				return type;
+			}
+		}
+		return NONE;
+	}
+};
@@ -14,11 +14,11 @@ public enum ELenType
 	FL,
 	/** Largo variable menor a 100 empacado BCD */
 	L2B,
-	/** Largo variable menor a 100 numrico*/
+	/** Largo variable menor a 100 numérico*/
 	L2N,
 	/** Largo variable menor a 1000 empacado BCD */
 	L3B,
-	/** Largo variable menor a 1000 numrico*/
+	/** Largo variable menor a 1000 numérico*/
 	L3N;
 
 	/**
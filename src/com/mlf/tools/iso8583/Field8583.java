@@ -1,9 +1,15 @@
 package com.mlf.tools.iso8583;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.logging.Level;
+
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 
+import com.mlf.tools.CodecTools;
 import com.mlf.tools.EAlign;
+import com.mlf.tools.HexDump;
 import com.mlf.tools.Log;
 import com.mlf.tools.StrUtils;
 
@@ -13,14 +19,15 @@ import com.mlf.tools.StrUtils;
  */
 public class Field8583 implements Comparable<Field8583>
 {
-	private EField fieldId;			// Nmero de bit 0-63
-	private EDataType dataType;		// Tipo de dato
-	private EAlign align;			// Alineacin de datos
-	private ELenType lenType;		// Tipo de longitud de campo 
-	private char padChar;			// Caracter de relleno
-	private int maxLen;				// Mxima longitud del campo
+	private FieldSpec spec;			// Configuración del campo (compartida e inmutable)
 	private int fieldLen;			// Longitud del campo informada
-	private byte[] rawData;			// Datos si se pasan como buffer (BINL, BINR)
+	private byte[] rawData;			// Buffer que contiene los datos (propio o el mensaje de origen)
+	private int rawOffset;			// Posición de los datos dentro de rawData
+	private int rawLen;				// Bytes que ocupan los datos dentro de rawData
+	private String strData;			// Datos decodificados, se obtienen al pedirlos por primera vez
+	private byte[] ownData;			// Buffer propio, se conserva al borrar los datos para reutilizarlo
+
+	private static final byte[] EMPTY = new byte[0];
 
 	/**
 	 * Constructor
@@ -45,9 +52,9 @@ public class Field8583 implements Comparable<Field8583>
 	 * Constuctor
 	 * @param field Campo
 	 * @param dataType Tipo de dato
-	 * @param align Alineacin
+	 * @param align Alineación
 	 * @param lenType Tipo de largo
-	 * @param maxLen Mximo largo
+	 * @param maxLen Máximo largo
 	 * @param fill Caracter de padeo
 	 */
 	public Field8583(EField field, EDataType dataType, EAlign align, ELenType lenType, int maxLen, char fill)
@@ -57,11 +64,11 @@ public class Field8583 implements Comparable<Field8583>
 
 	/**
 	 * Constructor
-	 * @param bit Nmero del campo
+	 * @param bit Número del campo
 	 * @param dataType Tipo de campo
-	 * @param align Alineacin
+	 * @param align Alineación
 	 * @param lenType Tipo de largo
-	 * @param maxLen Mximo largo de campo
+	 * @param maxLen Máximo largo de campo
 	 * @param fill Caracter de padeo
 	 */
 	public Field8583(int bit, EDataType dataType, EAlign align, ELenType lenType, int maxLen, char fill)
@@ -69,19 +76,28 @@ public class Field8583 implements Comparable<Field8583>
 		setConfig(bit, dataType, align, lenType, maxLen, fill);
 	}
 
+	/**
+	 * Constructor
+	 * @param spec Configuración del campo
+	 */
+	public Field8583(FieldSpec spec)
+	{
+		super();
+		this.spec = spec;
+		clearData();
+	}
+
 	/**
 	 * Reset
 	 */
 	public void reset()
 	{
-		fieldId = EField.UNDEFINED;
-		dataType = EDataType.UNDEFINED;
-		align = EAlign.UNDEFINED;
-		lenType = ELenType.ND;
-		padChar = 0;
-		maxLen = 0;
+		spec = FieldSpec.UNDEFINED;
 		fieldLen = 0;
-		rawData = new byte[0];
+		rawData = EMPTY;
+		rawOffset = 0;
+		rawLen = 0;
+		strData = null;
 	}
 	
 	/**
@@ -90,26 +106,40 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public void set(Field8583 src)
 	{
-		fieldId = src.fieldId;
-		dataType = src.dataType;
-		align = src.align;
-		lenType = src.lenType;
-		padChar = src.padChar;
-		maxLen = src.maxLen;
+		spec = src.spec;
+		strData = null;
 		if(src.hasData())
 		{
-			rawData = new byte[src.rawData.length];
-			fieldLen = src.maxLen;
-			StrUtils.copy(rawData, src.rawData);
+			copyData(src.rawData, src.rawOffset, src.rawLen);
+			fieldLen = src.spec.getMaxLen();
 		}
 		else
 		{
 			clearData();
 		}
 	}
+
+	/**
+	 * Referenciar los datos de otro campo con la misma configuración, sin copiarlos. Los datos son válidos mientras
+	 * no se reutilice el campo de origen
+	 * @param src Campo de origen
+	 */
+	void share(Field8583 src)
+	{
+		if(!src.hasData())
+		{
+			clearData();
+			return;
+		}
+		strData = src.strData;
+		rawData = src.rawData;
+		rawOffset = src.rawOffset;
+		rawLen = src.rawLen;
+		fieldLen = src.fieldLen;
+	}
 	
 	/**
-	 * Obtener json de la configuracin del campo 
+	 * Obtener json de la configuración del campo 
 	 * @return Objeto json
 	 */
 	public JSONObject toJSON()
@@ -118,7 +148,7 @@ public class Field8583 implements Comparable<Field8583>
 	}
 
 	/**
-	 * Obtener json con la configuracin y opcionalmente los datos del campo 
+	 * Obtener json con la configuración y opcionalmente los datos del campo 
 	 * @param includeData Incluir los datos del campo
 	 * @return Objeto json
 	 */
@@ -127,12 +157,12 @@ public class Field8583 implements Comparable<Field8583>
 		JSONObject obj = new JSONObject();
 		try
 		{
-			obj.put("bit", fieldId.number());
-			obj.put("type", dataType.name());
-			obj.put("align", align.name());
-			obj.put("lenType", lenType.name());
-			obj.put("maxLen", maxLen);
-			obj.put("padChar", (int) padChar);
+			obj.put("bit", spec.getFieldId().number());
+			obj.put("type", spec.getDataType().name());
+			obj.put("align", spec.getAlign().name());
+			obj.put("lenType", spec.getLenType().name());
+			obj.put("maxLen", spec.getMaxLen());
+			obj.put("padChar", (int) spec.getPadChar());
 			if(includeData)
 			{
 				obj.put("data", getData_str());
@@ -146,9 +176,9 @@ public class Field8583 implements Comparable<Field8583>
 	}
 
 	/**
-	 * Obtener string de la configuracin y opcionalmente datos del campo
+	 * Obtener string de la configuración y opcionalmente datos del campo
 	 * @param includeData Incluir o no datos del campo
-	 * @return Informacin del campo
+	 * @return Información del campo
 	 */
 	public String toString(boolean includeData)
 	{
@@ -164,11 +194,11 @@ public class Field8583 implements Comparable<Field8583>
 	@Override
 	public int compareTo(Field8583 o)
 	{
-		return fieldId.number() - o.fieldId.number();
+		return spec.getFieldId().number() - o.spec.getFieldId().number();
 	}
 	
 	/**
-	 * Obtener la configuracin del campo como una cadena json
+	 * Obtener la configuración del campo como una cadena json
 	 * @return Cadena json
 	 */
 	public String getConfigAsString()
@@ -177,89 +207,16 @@ public class Field8583 implements Comparable<Field8583>
 	}
 	
 	/**
-	 * Comprobar la configuracin del campo
+	 * Comprobar la configuración del campo, validada al crear su FieldSpec
 	 * @return true/false
 	 */
 	private boolean checkConfig()
 	{
-		if(fieldId == EField.UNDEFINED)
-		{
-			Log.err("Bit num invalid: " + fieldId.number());
-			return false;
-		}
-		if(dataType == EDataType.UNDEFINED)
-		{
-			Log.err("Bit " + fieldId.number() + " error. Data type Not Defined");
-			return false;
-		}
-		if(maxLen < 1)
+		if(!spec.isValid())
 		{
-			Log.err("Bit " + fieldId.number() + " error. Max len must be 1 or higher");
+			Log.err(spec.getError());
 			return false;
 		}
-		switch(lenType)
-		{
-			case FL:
-			case L2B:
-			case L2N:
-				if(maxLen > 99)
-				{
-					Log.err("Bit " + fieldId.number() + ". error. Len > 99");
-					return false;
-				}
-				break;
-			case L3B:
-			case L3N:
-				if(maxLen > 999)
-				{
-					Log.err("Bit " + fieldId.number() + ". error. Len > 999");
-					return false;
-				}
-				break;
-			case ND:
-			default:
-				Log.err("Bit " + fieldId.number() + ". error. Len type Not Defined");
-				return false;
-		}
-		switch(dataType)
-		{
-			case TEXT:
-			case TRACK:
-				break;
-			case NUMERIC:
-			case BCD:
-				if((padChar < '0') || (padChar > '9'))
-				{
-					Log.err("Bit " + fieldId.number() + " error. Type NUMERIC and  BCD need pad '0' to '9'");					
-					return false;
-				}				
-				break;
-			case BINARY:
-			case ASC_HEX:
-			case HEXSTRING:
-				if((padChar >= 'a') && (padChar <= 'f'))
-				{
-					padChar = (char) ('A' - 'a' + padChar);
-				}
-				if((padChar >= '0') && (padChar <= '9'))
-				{
-					// Valid
-				}
-				else if((padChar >= 'A') && (padChar <= 'F'))
-				{
-					// Valid
-				}
-				else
-				{
-					Log.err("Bit " + fieldId.number() + " error. Type BINARY, HEXSTRING and HEX_STR need pad '0' to '9' or 'A' to 'F'");					
-					return false;
-				}
-				break;
-			case UNDEFINED:
-			default:
-				Log.err("Bit " + fieldId.number() + " error. Data type Not Defined");
-				return false;
-		}
 		return true;
 	}
 	
@@ -269,163 +226,293 @@ public class Field8583 implements Comparable<Field8583>
 	 * @return Cantidad de bytes usados
 	 */
 	public int parseField(byte[] message)
+	{
+		int used = parseField(message, 0, message.length);
+		if(used > 0)
+		{
+			detach();
+		}
+		return used;
+	}
+
+	/**
+	 * Obtener los datos del campo desde una posición de un array de bytes sin copiarlos. El campo queda
+	 * referenciando al array de origen, que no debe modificarse mientras se usen los datos del campo
+	 * @param message Array de bytes
+	 * @param offset Posición de inicio del campo
+	 * @param end Posición siguiente al último byte válido del array
+	 * @return Cantidad de bytes usados
+	 */
+	public int parseField(byte[] message, int offset, int end)
+	{
+		return parseField(message, offset, end, false);
+	}
+
+	/**
+	 * Obtener los datos del campo desde una posición de un array de bytes sin copiarlos. El campo queda
+	 * referenciando al array de origen, que no debe modificarse mientras se usen los datos del campo
+	 * @param message Array de bytes
+	 * @param offset Posición de inicio del campo
+	 * @param end Posición siguiente al último byte válido del array
+	 * @param lazy Solo resolver los límites del campo, los datos se decodifican al pedirlos por primera vez
+	 * @return Cantidad de bytes usados
+	 */
+	public int parseField(byte[] message, int offset, int end, boolean lazy)
 	{
 		if(!checkConfig())
 		{
 			return 0;
 		}
-		int sizeLen;	// Bytes que ocupa el campo de longitud
-		int realLen;	// Bytes reales que ocupan los datos del campo
-		int recLen;		// Longitud del campo declarada
-		boolean bcdLed = false;
-		switch(lenType)
+		int recLen = spec.scan(message, offset, end);	// Longitud del campo declarada
+		if(recLen < 0)
 		{
-			case FL:
-				sizeLen = 0;
-				break;
-			case L2B:
-				sizeLen = 1;
-				bcdLed = true;
-				break;
-			case L2N:
-				sizeLen = 2;
-				break;
-			case L3B:
-				sizeLen = 2;
-				bcdLed = true;
-				break;
-			case L3N:
-				sizeLen = 3;
-				break;
-			case ND:
-			default:
-				Log.err("Bit" + fieldId.number() + ": Len type not defined");
-				return 0;
+			return 0;
 		}
-		// Longitud informada en el campo
-		byte[] bufLen;
-		if(sizeLen == 0)
+		int sizeLen = spec.getLenSize();	// Bytes que ocupa el campo de longitud
+		int realLen = spec.dataLen(recLen);	// Bytes reales que ocupan los datos del campo
+		return setParsed(message, offset, sizeLen, realLen, recLen, lazy);
+	}
+
+	/**
+	 * Dejar el campo referenciando los datos ya delimitados dentro del mensaje
+	 * @param message Array de bytes
+	 * @param offset Posición de inicio del campo (prefijo de largo)
+	 * @param sizeLen Bytes que ocupa el prefijo de largo
+	 * @param realLen Bytes que ocupan los datos
+	 * @param recLen Longitud del campo declarada
+	 * @param lazy No logear ni decodificar los datos
+	 * @return Cantidad de bytes usados
+	 */
+	int setParsed(byte[] message, int offset, int sizeLen, int realLen, int recLen, boolean lazy)
+	{
+		rawData = message;
+		rawOffset = offset + sizeLen;
+		rawLen = realLen;
+		fieldLen = recLen;
+		strData = null;
+		
+		if(!lazy)
 		{
-			bufLen = new byte[0];
-			recLen = maxLen;
+			String str = getData_str();
+			if(Log.isEnabled(Level.INFO))
+			{
+				dumpField(message, offset, sizeLen + realLen);
+				Log.info(str);
+			}
 		}
-		else
+
+		return sizeLen + realLen;
+	}
+
+	/**
+	 * Obtener la cantidad de bytes que ocupa el campo en un mensaje sin leer ni validar sus datos, solo
+	 * se decodifica el prefijo de largo si el campo es de largo variable
+	 * @param message Array de bytes
+	 * @param offset Posición de inicio del campo
+	 * @param end Posición siguiente al último byte válido del array
+	 * @return Cantidad de bytes que ocupa el campo, 0 si no se puede determinar o excede el mensaje
+	 */
+	public int skipField(byte[] message, int offset, int end)
+	{
+		if(!spec.isValid())
 		{
-			bufLen = StrUtils.sub(message, 0, sizeLen);
-			recLen = bcdLed ? StrUtils.BCD2Int(bufLen) : Integer.parseInt(new String(bufLen));
+			return 0;
 		}
-		if(recLen < 0 || recLen > maxLen)
+		int sizeLen = spec.getLenSize();
+		if(end - offset < sizeLen)
 		{
-			Log.err("Bit " + fieldId.number() + " error. Invalid length " + recLen);
 			return 0;
 		}
-		// Longitud real del campo
-		switch(dataType)
+		int recLen = spec.readLen(message, offset);
+		if(recLen < 0)
 		{
-			case BCD:
-			case TRACK:
-				realLen = (recLen + recLen%2)/2;
-				break;
-			case BINARY:
-				realLen = recLen;
-				break;
-			case ASC_HEX:
-				realLen = recLen*2;
-				break;
-			case NUMERIC:
-			case TEXT:
-			case HEXSTRING:
-				realLen = recLen;
-				break;
-			default:
-				Log.err("Bit " + fieldId.number() + " error: Data type not defined");
-				return 0;
+			return 0;
 		}
-		// Chequeo de largo por posibilidad
-		if(message.length < sizeLen + realLen)
+		int realLen = spec.dataLen(recLen);
+		if(end - offset < sizeLen + realLen)
 		{
-			Log.err("Bit " + fieldId.number() + " error. Field to short " + message.length);
 			return 0;
 		}
-		rawData = StrUtils.sub(message, sizeLen, sizeLen + realLen);
-		fieldLen = recLen;
-		
-		logField(StrUtils.concatenate(bufLen, rawData));
-		Log.info(getData_str());
-
 		return sizeLen + realLen;
 	}
 
+	/**
+	 * Copiar los datos a un buffer propio si el campo referencia a un mensaje de origen
+	 */
+	private void detach()
+	{
+		if((rawData != null) && (rawData != ownData) && ((rawOffset != 0) || (rawLen != rawData.length)))
+		{
+			copyData(rawData, rawOffset, rawLen);
+		}
+	}
+
+	/**
+	 * Saber si el campo referencia sus datos dentro del array indicado, es decir que no se modificó desde que se
+	 * parseó desde ese array
+	 * @param message Array del mensaje parseado
+	 * @return true/false
+	 */
+	boolean isView(byte[] message)
+	{
+		return rawData == message;
+	}
+
+	/**
+	 * Pasar a referenciar otro buffer con el mismo contenido si el campo referencia al buffer indicado
+	 * @param from Buffer anterior
+	 * @param to Buffer nuevo
+	 */
+	void rebase(byte[] from, byte[] to)
+	{
+		if(rawData == from)
+		{
+			rawData = to;
+		}
+	}
+
+	/**
+	 * Copiar los datos al buffer propio, que solo se agranda si no alcanza
+	 * @param src Array de origen
+	 * @param offset Posición de los datos
+	 * @param len Bytes de datos
+	 */
+	private void copyData(byte[] src, int offset, int len)
+	{
+		ensureOwn(len);
+		System.arraycopy(src, offset, ownData, 0, len);
+		rawData = ownData;
+		rawOffset = 0;
+		rawLen = len;
+	}
+
 	/**
 	 * Obtener un array de bytes con los datos del campo ISO-8583
 	 * @return Array de bytes con los datos del campo ISO-8583
 	 */
 	public byte[] buildField()
+	{
+		byte[] out = new byte[getBuildLen()];
+		buildField(ByteBuffer.wrap(out));
+		return out;
+	}
+
+	/**
+	 * Escribir los datos del campo ISO-8583 (largo y datos) en la posición actual del buffer
+	 * @param out Buffer de salida (heap o directo)
+	 * @return Cantidad de bytes escritos, 0 si el campo no tiene datos o no hay lugar en el buffer
+	 */
+	public int buildField(ByteBuffer out)
 	{
 		if(!hasData())
 		{
-			return new byte[0];
+			return 0;
 		}
-		byte[] padded;
-		switch(dataType)
+		int size = getBuildLen();
+		if(out.remaining() < size)
 		{
-			case BCD:
-			case BINARY:
-			case TRACK:
-			case ASC_HEX:
-			case NUMERIC:
-			case TEXT:
-			case HEXSTRING:
-				padded = rawData;
-				break;
-			default:
-				Log.err("Data type not Defined");
-				return new byte[0];
+			Log.err("Bit " + spec.getFieldId().number() + " error. Buffer to short " + out.remaining());
+			return 0;
 		}
-		// Agrego el largo al principio si corresponde
-		byte[] lenBuf;
-		switch(lenType)
+		int start = out.position();
+		switch(spec.getLenType())
 		{
-			case FL:
-				lenBuf = new byte[0];
-				break;
 			case L2B:
-				lenBuf = StrUtils.toBCD(fieldLen, 1);
+				out.put(CodecTools.toBcd(fieldLen%100));
 				break;
 			case L2N:
-				lenBuf =  StrUtils.toString(fieldLen, 2).getBytes();	
+				out.put((byte) ('0' + (fieldLen/10)%10));
+				out.put((byte) ('0' + fieldLen%10));
 				break;
 			case L3B:
-				lenBuf = StrUtils.toBCD(fieldLen, 2);
+				out.put(CodecTools.toBcd((fieldLen/100)%100));
+				out.put(CodecTools.toBcd(fieldLen%100));
 				break;
 			case L3N:
-				lenBuf =  StrUtils.toString(fieldLen, 3).getBytes();
+				out.put((byte) ('0' + (fieldLen/100)%10));
+				out.put((byte) ('0' + (fieldLen/10)%10));
+				out.put((byte) ('0' + fieldLen%10));
 				break;
+			case FL:
 			default:
-				lenBuf = new byte[0];
-				Log.err("Len type undefined");
 				break;
 		}
-		byte[] out = StrUtils.concatenate(lenBuf, padded);
-		logField(out);
-		return out;
+		out.put(rawData, rawOffset, rawLen);
+		logField(out, start);
+		return size;
+	}
+
+	/**
+	 * Obtener la cantidad de bytes que ocupa el campo ISO-8583 armado (largo y datos)
+	 * @return Cantidad de bytes, 0 si el campo no tiene datos
+	 */
+	public int getBuildLen()
+	{
+		if(!hasData())
+		{
+			return 0;
+		}
+		return spec.getLenSize() + rawLen;
+	}
+
+	/**
+	 * Logear el campo armado a partir de los bytes ya escritos
+	 * @param data Array con el campo armado
+	 * @param offset Posición del campo (largo y datos)
+	 * @param len Bytes del campo
+	 */
+	void logField(byte[] data, int offset, int len)
+	{
+		if(!Log.isEnabled(Level.INFO))
+		{
+			return;
+		}
+		dumpField(data, offset, len);
+	}
+
+	/**
+	 * Logear el campo armado a partir de los bytes ya escritos en el buffer
+	 * @param out Buffer de salida
+	 * @param start Posición del campo (largo y datos)
+	 */
+	private void logField(ByteBuffer out, int start)
+	{
+		if(!Log.isEnabled(Level.INFO))
+		{
+			return;
+		}
+		if(out.hasArray())
+		{
+			dumpField(out.array(), out.arrayOffset() + start, out.position() - start);
+			return;
+		}
+		byte[] written = new byte[out.position() - start];
+		ByteBuffer dup = out.duplicate();
+		dup.position(start);
+		dup.get(written);
+		dumpField(written, 0, written.length);
 	}
 	
-	@SuppressWarnings("unused")
-	private void logField(byte[] out)
+	/**
+	 * Logear el volcado hexa del campo
+	 * @param data Array con el campo
+	 * @param offset Posición del campo (largo y datos)
+	 * @param len Bytes del campo
+	 */
+	private void dumpField(byte[] data, int offset, int len)
 	{
-		StringBuilder log = new StringBuilder();
-		if(fieldId.index() < 1)
+		StringBuilder log = new StringBuilder(32 + HexDump.size(len));
+		if(spec.getFieldId().index() < 1)
 		{
-			log.append(fieldId.name());	
+			log.append(spec.getFieldId().name());	
 		}
 		else
 		{
-			log.append("Bit" + fieldId.number());
-			log.append(" (" + fieldId.name() + ")");	
+			log.append("Bit" + spec.getFieldId().number());
+			log.append(" (" + spec.getFieldId().name() + ")");	
 		}
 		log.append(":\n");
-		log.append(StrUtils.Buf2Log(out));
+		HexDump.write(data, offset, len, log);
 		Log.info(log.toString());
 	}
 
@@ -447,70 +534,138 @@ public class Field8583 implements Comparable<Field8583>
 	 * @return Datos del campo
 	 */
 	public byte[] getData_raw()
+	{
+		detach();
+		if((rawData != null) && (rawData == ownData))
+		{
+			if(rawLen == ownData.length)
+			{
+				// El array queda en manos del llamador, no se reutiliza
+				ownData = null;
+			}
+			else
+			{
+				rawData = Arrays.copyOf(ownData, rawLen);
+			}
+		}
+		return rawData;
+	}
+
+	/**
+	 * Obtener el buffer que contiene los datos del campo, que puede ser el mensaje del que se obtuvieron
+	 * @return Buffer con los datos del campo
+	 */
+	public byte[] getRawBuffer()
 	{
 		return rawData;
 	}
 
 	/**
-	 * Obtener los datos del campo como una cadena
+	 * Obtener la posición de los datos del campo dentro del buffer
+	 * @return Posición de los datos
+	 */
+	public int getRawOffset()
+	{
+		return rawOffset;
+	}
+
+	/**
+	 * Obtener la cantidad de bytes que ocupan los datos del campo dentro del buffer
+	 * @return Bytes de datos
+	 */
+	public int getRawLen()
+	{
+		return (rawData == null) ? 0 : rawLen;
+	}
+
+	/**
+	 * Obtener los datos del campo como una cadena. La cadena se decodifica la primera vez que se pide y se
+	 * reutiliza hasta que cambien los datos o la configuración del campo
 	 * @return Cadena con datos del campo
 	 */
 	public String getData_str()
 	{
 		if(!hasData())
 		{
-			Log.err("Field " + fieldId + " empty");
+			Log.err("Field " + spec.getFieldId() + " empty");
 			return "";
 		}
-		switch(dataType)
+		if(strData == null)
+		{
+			strData = decode();
+		}
+		return strData;
+	}
+
+	/**
+	 * Decodificar los datos del campo como una cadena
+	 * @return Cadena con datos del campo
+	 */
+	private String decode()
+	{
+		return decode(spec, rawData, rawOffset, rawLen, fieldLen);
+	}
+
+	/**
+	 * Decodificar como una cadena los datos de un campo contenidos en un array
+	 * @param spec Configuración del campo
+	 * @param data Array con los datos
+	 * @param offset Posición de inicio de los datos
+	 * @param len Bytes que ocupan los datos
+	 * @param fieldLen Largo del campo
+	 * @return Cadena con datos del campo
+	 */
+	static String decode(FieldSpec spec, byte[] data, int offset, int len, int fieldLen)
+	{
+		switch(spec.getDataType())
 		{
 			case TEXT:
 			case NUMERIC:
 			case HEXSTRING:
-				return new String(rawData);
+				return new String(data, offset, len);
 			case ASC_HEX:
-				return new String(StrUtils.HexStr2Buf(new String(rawData)));
+				if(len%2 != 0)
+				{
+					return new String(StrUtils.HexStr2Buf(new String(data, offset, len)));
+				}
+				byte[] chars = new byte[len/2];
+				CodecTools.fromHexAscii(data, offset, len, chars, 0);
+				return new String(chars);
 			case BCD:
-				String str = StrUtils.toHexString(rawData);
-				return StrUtils.adjust(str, fieldLen, align, padChar);
+				String str = CodecTools.toHexString(data, offset, len);
+				return StrUtils.adjust(str, fieldLen, spec.getAlign(), spec.getPadChar());
 			case BINARY:
 			case TRACK:
-				return StrUtils.toHexString(rawData);
+				return CodecTools.toHexString(data, offset, len);
 			default:
-				Log.err("Unknow type " + fieldId + " dataType");
+				Log.err("Unknow type " + spec.getFieldId() + " dataType");
 				break;
 		}
 		return "";
 	}
 
 	/**
-	 * Establecer configuracin
-	 * @param field Campo (1 a 63) para los datos, 0 para el MTI, -1 para el TPDU 
+	 * Establecer configuración
+	 * @param field Campo (1 a 128) para los datos, 0 para el MTI, -1 para el TPDU 
 	 * @param dataType Tipo de datos
-	 * @param align Alineacin
+	 * @param align Alineación
 	 * @param lenType Tipo de largo
-	 * @param maxLen Mximo largo
+	 * @param maxLen Máximo largo
 	 * @param fill Caracter de relleno
 	 * @return Instancia
 	 */
 	public Field8583 setConfig(EField field, EDataType dataType, EAlign align, ELenType lenType, int maxLen, char fill)
 	{
-		this.fieldId = field;
-		this.dataType = dataType;
-		this.align = align;
-		this.lenType = lenType;
-		this.maxLen = maxLen;
-		this.padChar = fill;
-		return this;
+		return setConfig(new FieldSpec(field, dataType, align, lenType, maxLen, fill));
 	}
 
 	/**
-	 * Establecer configuracin
-	 * @param field Campo (1 a 63) para los datos, 0 para el MTI, -1 para el TPDU 
+	 * Establecer configuración
+	 * @param field Campo (1 a 128) para los datos, 0 para el MTI, -1 para el TPDU 
 	 * @param dataType Tipo de datos
-	 * @param align Alineacin
+	 * @param align Alineación
 	 * @param lenType Tipo de largo
-	 * @param maxLen Mximo largo
+	 * @param maxLen Máximo largo
 	 * @param fill Caracter de relleno
 	 * @return Instancia
 	 */
@@ -520,23 +675,38 @@ public class Field8583 implements Comparable<Field8583>
 	}
 
 	/**
-	 * Establecer la configuracin del campo desde un campo de origen
+	 * Establecer la configuración del campo desde un campo de origen
 	 * @param field Campo de origen
 	 * @return Instancia
 	 */
 	public Field8583 setConfig(Field8583 field)
 	{
-		fieldId = field.fieldId;
-		dataType = field.dataType;
-		align = field.align;
-		lenType = field.lenType;
-		maxLen = field.maxLen;
-		padChar = field.padChar;
+		return setConfig(field.spec);
+	}
+
+	/**
+	 * Establecer la configuración del campo, que puede compartirse con otros campos
+	 * @param spec Configuración del campo
+	 * @return Instancia
+	 */
+	public Field8583 setConfig(FieldSpec spec)
+	{
+		strData = null;
+		this.spec = spec;
 		return this;
 	}
 
 	/**
-	 * Establecer la configuracin del campo desde una cadena json
+	 * Obtener la configuración del campo
+	 * @return Configuración del campo
+	 */
+	public FieldSpec getSpec()
+	{
+		return spec;
+	}
+
+	/**
+	 * Establecer la configuración del campo desde una cadena json
 	 * @param jstr Cadena json
 	 * @return Instancia
 	 */
@@ -549,13 +719,9 @@ public class Field8583 implements Comparable<Field8583>
 		try
 		{
 			JSONObject obj = new JSONObject(jstr);
-			fieldId = EField.fromNumber(obj.optInt("bit"));
-			dataType = EDataType.fromName(obj.optString("type"));
-			align = EAlign.fromName(obj.optString("align"));
-			lenType = ELenType.fromName(obj.optString("lenType"));
-			maxLen = obj.optInt("maxLen");
-			padChar = (char) obj.optInt("padChar");
-			return this;
+			return setConfig(EField.fromNumber(obj.optInt("bit")), EDataType.fromName(obj.optString("type")),
+					EAlign.fromName(obj.optString("align")), ELenType.fromName(obj.optString("lenType")),
+					obj.optInt("maxLen"), (char) obj.optInt("padChar"));
 		}
 		catch(JSONException e)
 		{
@@ -569,79 +735,146 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public void clearData()
 	{
+		strData = null;
 		rawData = null;
+		rawOffset = 0;
+		rawLen = 0;
 		fieldLen = 0;
 	}
 	
-	/*private void doSetData(byte[] data, int len)
-	{
-		int realLen = Math.min(Math.min(data.length, len), maxLen);
-		rawData = new byte[realLen];
-		if(data.length > rawData.length)
-		{
-			byte[] srcData = (align == EAlign.LEFT) ? data : StrUtils.sub(data, data.length - rawData.length);
-			StrUtils.copy(rawData, srcData, realLen);
-		}
-		else
-		{
-			StrUtils.copy(rawData, data, realLen);
-		}
-		fieldLen = (lenType == ELenType.FL) ? maxLen : realLen;
-	}*/
-
 	/**
 	 * Establecer los datos del campo
 	 * @param data Datos del campo
 	 */
-	/*public void setData(byte[] data)
+	public void setData(byte[] data)
 	{
-		setData(data, (data != null) ? data.length : 0);
-	}*/
+		setData(data, 0, (data != null) ? data.length : 0);
+	}
 
 	/**
 	 * Establecer los datos del campo
 	 * @param data Datos del campo
 	 * @param len Longitud de datos
 	 */
-	/*public void setData(byte[] data, int len)
+	public void setData(byte[] data, int len)
+	{
+		setData(data, 0, (data != null) ? Math.min(data.length, len) : 0);
+	}
+
+	/**
+	 * Establecer los datos del campo desde bytes, copiándolos al buffer propio del campo sin pasar por una cadena.
+	 * En BINARY, BCD y TRACK los bytes son los datos empaquetados (cada byte son dos dígitos hexa), en el resto
+	 * son los caracteres del dato. El resultado es el mismo que setData con la cadena equivalente, con el mismo
+	 * ajuste de largo, alineación y relleno
+	 * @param data Array con los datos
+	 * @param offset Posición de los datos
+	 * @param len Bytes de datos
+	 */
+	public void setData(byte[] data, int offset, int len)
 	{
-		String sdata;
-		switch(dataType)
+		if((data == null) || (len < 1))
 		{
-			case TEXT:
-			case NUMERIC:
-			case ASC_HEX:
-				sdata = new String(data);
-				if(sdata.length() > len)
-				{
-					sdata = (align == EAlign.LEFT) ? sdata.substring(0, len) : sdata.substring(sdata.length() - len);
-				}
-				setData(sdata);
-				return;
-			case HEXSTRING:
-				sdata = StrUtils.Buf2HexStr(data, len);
-				setData(sdata);
-				break;
-			default:
-				break;
+			setData((String) null);
+			return;
 		}
-		// Si no est configurado o est configurado para que no tenga contenido
+		strData = null;
 		if(!checkConfig())
 		{
 			clearData();
 			return;
 		}
-		// No hay datos
-		if((data == null) || (data.length == 0) || (len < 1))
+		boolean fixed = (spec.getLenType() == ELenType.FL);
+		int units;		// Unidades de origen (nibbles o caracteres)
+		int chars;		// Unidades ajustadas
+		int size;		// Bytes de datos
+		switch(spec.getDataType())
 		{
-			rawData = null;
-			fieldLen = (lenType == ELenType.FL) ? maxLen : 0;
+			case BINARY:
+				fieldLen = fixed ? spec.getMaxLen() : Math.min(len, spec.getMaxLen());
+				units = len*2;
+				chars = fieldLen*2;
+				size = fieldLen;
+				break;
+			case BCD:
+			case TRACK:
+				fieldLen = fixed ? spec.getMaxLen() : Math.min(len*2, spec.getMaxLen());
+				units = len*2;
+				chars = fieldLen;
+				size = (fieldLen + 1)/2;
+				break;
+			case ASC_HEX:
+				fieldLen = fixed ? spec.getMaxLen() : Math.min(len, spec.getMaxLen());
+				units = len;
+				chars = fieldLen;
+				size = fieldLen*2;
+				break;
+			case HEXSTRING:
+			case NUMERIC:
+			case TEXT:
+				fieldLen = fixed ? spec.getMaxLen() : Math.min(len, spec.getMaxLen());
+				units = len;
+				chars = fieldLen;
+				size = fieldLen;
+				break;
+			default:
+				return;
 		}
-		else
+		ensureOwn(size);
+		int shift = (spec.getAlign() == EAlign.LEFT) ? 0 : chars - units;
+		int pos = 0;
+		switch(spec.getDataType())
 		{
-			doSetData(data, len);
+			case BINARY:
+			case BCD:
+			case TRACK:
+				int pad = CodecTools.nibble(spec.getPadChar());
+				int odd = ((chars%2 != 0) && (spec.getAlign() == EAlign.RIGHT)) ? 1 : 0;
+				for(int i = -odd; i < chars; i += 2)
+				{
+					int high = (i < 0) ? pad : nibbleAt(data, offset, units, i - shift, pad);
+					int low = (i + 1 < chars) ? nibbleAt(data, offset, units, i + 1 - shift, pad) : pad;
+					ownData[pos++] = (byte) ((high << 4) | (low & 0x0F));
+				}
+				break;
+			case ASC_HEX:
+				for(int i = 0; i < chars; ++i)
+				{
+					int j = i - shift;
+					int car = ((j >= 0) && (j < units)) ? data[offset + j] : (byte) spec.getPadChar();
+					ownData[pos++] = (byte) CodecTools.hexDigit((car >> 4) & 0x0F);
+					ownData[pos++] = (byte) CodecTools.hexDigit(car & 0x0F);
+				}
+				break;
+			default:
+				for(int i = 0; i < chars; ++i)
+				{
+					int j = i - shift;
+					ownData[pos++] = ((j >= 0) && (j < units)) ? data[offset + j] : (byte) spec.getPadChar();
+				}
+				break;
+		}
+		rawData = ownData;
+		rawOffset = 0;
+		rawLen = size;
+	}
+
+	/**
+	 * Obtener un nibble de datos empaquetados
+	 * @param data Array con los datos
+	 * @param offset Posición de los datos
+	 * @param units Cantidad de nibbles de los datos
+	 * @param i Posición del nibble, fuera de los datos corresponde el relleno
+	 * @param pad Valor del relleno
+	 * @return Valor del nibble (0 a 15)
+	 */
+	private static int nibbleAt(byte[] data, int offset, int units, int i, int pad)
+	{
+		if((i < 0) || (i >= units))
+		{
+			return pad;
 		}
-	}*/
+		return (data[offset + i/2] >> ((i%2 == 0) ? 4 : 0)) & 0x0F;
+	}
 
 	/**
 	 * Establecer los datos del campo
@@ -649,6 +882,7 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public void setData(String data)
 	{
+		strData = null;
 		if(!checkConfig())
 		{
 			clearData();
@@ -657,78 +891,402 @@ public class Field8583 implements Comparable<Field8583>
 		if((data == null) || data.isEmpty())
 		{
 			rawData = null;
-			fieldLen = (lenType == ELenType.FL) ? (dataType == EDataType.ASC_HEX ? maxLen*2 : maxLen) : 0;
+			rawOffset = 0;
+			rawLen = 0;
+			fieldLen = (spec.getLenType() == ELenType.FL) ? (spec.getDataType() == EDataType.ASC_HEX ? spec.getMaxLen()*2 : spec.getMaxLen()) : 0;
 		}
 		else
 		{
-			switch(dataType)
+			switch(spec.getDataType())
 			{
 				case BCD:
-					fieldLen = (lenType == ELenType.FL) ? maxLen : Math.min(data.length(), maxLen);
-					data = StrUtils.adjust(data, fieldLen, align, padChar);
-					rawData = StrUtils.HexStr2Buf(data, padChar, align);
+					fieldLen = (spec.getLenType() == ELenType.FL) ? spec.getMaxLen() : Math.min(data.length(), spec.getMaxLen());
+					data = StrUtils.adjust(data, fieldLen, spec.getAlign(), spec.getPadChar());
+					packHex(data);
 					break;
 				case BINARY:
-					fieldLen = (lenType == ELenType.FL) ? maxLen : Math.min((data.length() + data.length()%2)/2, maxLen);
-					data = StrUtils.adjust(data, fieldLen*2, align, padChar);
-					rawData = StrUtils.HexStr2Buf(data, padChar, align);
+					fieldLen = (spec.getLenType() == ELenType.FL) ? spec.getMaxLen() : Math.min((data.length() + data.length()%2)/2, spec.getMaxLen());
+					data = StrUtils.adjust(data, fieldLen*2, spec.getAlign(), spec.getPadChar());
+					packHex(data);
 					break;
 				case TRACK:
-					fieldLen = (lenType == ELenType.FL) ? maxLen : Math.min(data.length(), maxLen);
-					data = StrUtils.adjust(data, fieldLen, align, padChar);
-					rawData = StrUtils.HexStr2Buf(data, padChar, align);
+					fieldLen = (spec.getLenType() == ELenType.FL) ? spec.getMaxLen() : Math.min(data.length(), spec.getMaxLen());
+					data = StrUtils.adjust(data, fieldLen, spec.getAlign(), spec.getPadChar());
+					packHex(data);
 					break;
 				case ASC_HEX:
-					fieldLen = (lenType == ELenType.FL) ? maxLen : Math.min(data.length(), maxLen);
-					data = StrUtils.adjust(data, fieldLen, align, padChar);
-					rawData = StrUtils.toHexString(data.getBytes()).getBytes();
+					fieldLen = (spec.getLenType() == ELenType.FL) ? spec.getMaxLen() : Math.min(data.length(), spec.getMaxLen());
+					data = StrUtils.adjust(data, fieldLen, spec.getAlign(), spec.getPadChar());
+					if(isAscii(data))
+					{
+						ensureOwn(data.length()*2);
+						for(int i = 0; i < data.length(); ++i)
+						{
+							ownData[2*i] = (byte) CodecTools.hexDigit((data.charAt(i) >> 4) & 0x0F);
+							ownData[2*i + 1] = (byte) CodecTools.hexDigit(data.charAt(i) & 0x0F);
+						}
+						rawLen = data.length()*2;
+					}
+					else
+					{
+						byte[] chars = data.getBytes();
+						ensureOwn(chars.length*2);
+						CodecTools.toHexAscii(chars, 0, chars.length, ownData, 0);
+						rawLen = chars.length*2;
+					}
+					rawData = ownData;
 					break;
 				case HEXSTRING:
-					fieldLen = (lenType == ELenType.FL) ? maxLen : Math.min(data.length(), maxLen);
-					data = StrUtils.adjust(data, fieldLen, align, padChar);
-					rawData = data.getBytes();
-					break;
 				case NUMERIC:
 				case TEXT:
-					fieldLen = (lenType == ELenType.FL) ? maxLen : Math.min(data.length(), maxLen);
-					data = StrUtils.adjust(data, fieldLen, align, padChar);
-					rawData = data.getBytes();
+					fieldLen = (spec.getLenType() == ELenType.FL) ? spec.getMaxLen() : Math.min(data.length(), spec.getMaxLen());
+					data = StrUtils.adjust(data, fieldLen, spec.getAlign(), spec.getPadChar());
+					putChars(data);
 					break;
 				default:
 					return;
 			}
+			rawOffset = 0;
+		}
+	}
+
+	/**
+	 * Empaquetar una cadena hexa en el buffer propio del campo, completando con el caracter de relleno si la
+	 * cantidad de dígitos es impar
+	 * @param hex Cadena hexa
+	 */
+	private void packHex(String hex)
+	{
+		int n = hex.length();
+		ensureOwn((n + 1)/2);
+		int pos = 0;
+		int i = 0;
+		if((n%2 != 0) && (spec.getAlign() == EAlign.RIGHT))
+		{
+			ownData[pos++] = (byte) ((CodecTools.nibble(spec.getPadChar()) << 4) | CodecTools.nibble(hex.charAt(0)));
+			i = 1;
+		}
+		pos += CodecTools.fromHex(hex, i, n, ownData, pos);
+		if((n%2 != 0) && (spec.getAlign() != EAlign.RIGHT))
+		{
+			ownData[pos++] = (byte) ((CodecTools.nibble(hex.charAt(n - 1)) << 4) | CodecTools.nibble(spec.getPadChar()));
+		}
+		rawData = ownData;
+		rawLen = pos;
+	}
+
+	/**
+	 * Copiar una cadena en el buffer propio del campo, un byte por caracter si es ASCII y con la codificación por
+	 * defecto si no, igual que getBytes
+	 * @param data Cadena
+	 */
+	private void putChars(String data)
+	{
+		int n = data.length();
+		if(isAscii(data))
+		{
+			ensureOwn(n);
+			for(int i = 0; i < n; ++i)
+			{
+				ownData[i] = (byte) data.charAt(i);
+			}
+			rawLen = n;
+		}
+		else
+		{
+			byte[] bytes = data.getBytes();
+			ensureOwn(bytes.length);
+			System.arraycopy(bytes, 0, ownData, 0, bytes.length);
+			rawLen = bytes.length;
+		}
+		rawData = ownData;
+	}
+
+	/**
+	 * Determinar si todos los caracteres de una cadena son ASCII, que se codifican con un byte cada uno
+	 * @param data Cadena
+	 * @return true/false
+	 */
+	private static boolean isAscii(String data)
+	{
+		for(int i = 0; i < data.length(); ++i)
+		{
+			if(data.charAt(i) >= 0x80)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Asegurar que el buffer propio tenga lugar para la cantidad de bytes indicada, solo se agranda si no alcanza
+	 * @param len Bytes necesarios
+	 */
+	private void ensureOwn(int len)
+	{
+		if((ownData == null) || (ownData.length < len))
+		{
+			ownData = new byte[len];
+		}
+	}
+
+	/**
+	 * Establecer un valor numérico en el campo, igual que setData con la cadena de sus dígitos pero escribiendo los
+	 * dígitos directamente en el buffer propio del campo (tipos NUMERIC y BCD)
+	 * @param value Valor
+	 */
+	public void setLong(long value)
+	{
+		EDataType dataType = spec.getDataType();
+		if((value < 0) || ((dataType != EDataType.NUMERIC) && (dataType != EDataType.BCD)))
+		{
+			setData(Long.toString(value));
+			return;
+		}
+		strData = null;
+		if(!checkConfig())
+		{
+			clearData();
+			return;
+		}
+		fieldLen = (spec.getLenType() == ELenType.FL) ? spec.getMaxLen() : Math.min(CodecTools.digits(value), spec.getMaxLen());
+		int len = (dataType == EDataType.BCD) ? (fieldLen + 1)/2 : fieldLen;
+		ensureOwn(len);
+		encodeDigits(spec, fieldLen, value, ownData, 0);
+		rawData = ownData;
+		rawOffset = 0;
+		rawLen = len;
+	}
+
+	/**
+	 * Establecer un valor numérico en el campo (ver setLong)
+	 * @param value Valor
+	 */
+	public void setInt(int value)
+	{
+		setLong(value);
+	}
+
+	/**
+	 * Obtener el valor numérico del campo, leyendo los dígitos directamente de los datos en los tipos NUMERIC y BCD.
+	 * Se leen todos los dígitos del campo, incluido el relleno: igual que Long.parseLong(getData_str()), con
+	 * alineación izquierda y relleno '0' el valor "12" en un campo de 4 dígitos da 1200
+	 * @return Valor del campo, 0 si no tiene datos o no es numérico
+	 */
+	public long getLong()
+	{
+		if(!hasData())
+		{
+			return 0;
+		}
+		long value = 0;
+		switch(spec.getDataType())
+		{
+			case BCD:
+				// Con largo impar el nibble de relleno queda al inicio (alineado a derecha) o al final
+				int first = ((fieldLen%2 != 0) && (spec.getAlign() == EAlign.RIGHT)) ? 1 : 0;
+				for(int i = first; i < first + fieldLen; ++i)
+				{
+					int digit = (rawData[rawOffset + i/2] >> ((i%2 == 0) ? 4 : 0)) & 0x0F;
+					if(digit > 9)
+					{
+						Log.err("Field " + spec.getFieldId() + " isn't numeric");
+						return 0;
+					}
+					value = value*10 + digit;
+				}
+				return value;
+			case NUMERIC:
+				for(int i = rawOffset; i < rawOffset + rawLen; ++i)
+				{
+					int car = rawData[i];
+					if((car >= '0') && (car <= '9'))
+					{
+						value = value*10 + (car - '0');
+					}
+					else if(car != spec.getPadChar())
+					{
+						Log.err("Field " + spec.getFieldId() + " isn't numeric");
+						return 0;
+					}
+				}
+				return value;
+			default:
+				try
+				{
+					return Long.parseLong(getData_str().trim());
+				}
+				catch(NumberFormatException e)
+				{
+					Log.err("Field " + spec.getFieldId() + " isn't numeric");
+					return 0;
+				}
 		}
 	}
 
+	/**
+	 * Escribir los dígitos de un valor ajustados a la cantidad de caracteres indicada, con el mismo resultado que
+	 * setData con la cadena de los dígitos
+	 * @param spec Configuración del campo
+	 * @param chars Caracteres del valor ajustado
+	 * @param value Valor no negativo
+	 * @param dest Array de destino
+	 * @param offset Posición de destino
+	 */
+	static void encodeDigits(FieldSpec spec, int chars, long value, byte[] dest, int offset)
+	{
+		int n = CodecTools.digits(value);
+		int shift = (spec.getAlign() == EAlign.LEFT) ? 0 : chars - n;
+		int pad = CodecTools.nibble(spec.getPadChar());
+		int pos = offset;
+		switch(spec.getDataType())
+		{
+			case BCD:
+			case TRACK:
+			case BINARY:
+				int odd = ((chars%2 != 0) && (spec.getAlign() == EAlign.RIGHT)) ? 1 : 0;
+				for(int i = -odd; i < chars; i += 2)
+				{
+					int high = (i < 0) ? pad : digitAt(value, n, i - shift, pad);
+					int low = (i + 1 < chars) ? digitAt(value, n, i + 1 - shift, pad) : pad;
+					dest[pos++] = (byte) ((high << 4) | (low & 0x0F));
+				}
+				break;
+			case ASC_HEX:
+				for(int i = 0; i < chars; ++i)
+				{
+					int car = digitCharAt(value, n, i - shift, spec.getPadChar());
+					dest[pos++] = (byte) CodecTools.hexDigit((car >> 4) & 0x0F);
+					dest[pos++] = (byte) CodecTools.hexDigit(car & 0x0F);
+				}
+				break;
+			default:
+				for(int i = 0; i < chars; ++i)
+				{
+					dest[pos++] = (byte) digitCharAt(value, n, i - shift, spec.getPadChar());
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Obtener un dígito decimal del valor ajustado
+	 * @param value Valor
+	 * @param n Cantidad de dígitos del valor
+	 * @param i Posición del dígito, fuera del valor corresponde el relleno
+	 * @param pad Valor del relleno
+	 * @return Valor del dígito (0 a 15)
+	 */
+	private static int digitAt(long value, int n, int i, int pad)
+	{
+		if((i < 0) || (i >= n))
+		{
+			return pad;
+		}
+		return CodecTools.digitAt(value, n, i);
+	}
+
+	/**
+	 * Obtener un caracter del valor numérico ajustado
+	 * @param value Valor
+	 * @param n Cantidad de dígitos del valor
+	 * @param i Posición del dígito, fuera del valor corresponde el caracter de relleno
+	 * @param pad Caracter de relleno
+	 * @return Caracter
+	 */
+	private static int digitCharAt(long value, int n, int i, char pad)
+	{
+		if((i < 0) || (i >= n))
+		{
+			return pad;
+		}
+		return '0' + CodecTools.digitAt(value, n, i);
+	}
+
 	/**
 	 * Establecer en uno el bit indicado (para bitmap)
-	 * @param bit Nmero de bit
+	 * @param bit Número de bit
 	 */
 	public void setBit(int bit)
 	{
-		if((rawData == null) || (bit < 1) || (bit > 63))
+		if((rawData == null) || (bit < 1) || (bit > 128))
 		{
 			return;
 		}
 		int selByte = (bit - 1)/8;
 		int selBit = 7 - (bit - 1)%8;
-		rawData[selByte] |= (1 << selBit);
+		if(selByte < rawLen)
+		{
+			strData = null;
+			if(rawData != ownData)
+			{
+				// El mapa parseado referencia al mensaje, se pasa al buffer propio antes de modificarlo
+				byte[] data = rawData;
+				ensureOwn(rawLen);
+				System.arraycopy(data, rawOffset, ownData, 0, rawLen);
+				rawData = ownData;
+				rawOffset = 0;
+			}
+			rawData[selByte] |= (1 << selBit);
+		}
 	}
 
 	/**
 	 * Obtener el valor del bit indicado (para bitmap)
-	 * @param bitNumber Posicin del bit
+	 * @param bitNumber Posición del bit
 	 * @return true/false
 	 */
 	public boolean getBit(int bitNumber)
 	{
-		if((rawData == null) || (bitNumber < 1) || (bitNumber > 63))
+		if((rawData == null) || (bitNumber < 1) || (bitNumber > 128))
 		{
 			return false;
 		}
 		int selByte = (bitNumber - 1)/8;
 		int selBit = 7 - (bitNumber - 1)%8;
-		return ((rawData[selByte] & (1 << selBit)) != 0);
+		return (selByte < rawLen) && ((rawData[rawOffset + selByte] & (1 << selBit)) != 0);
+	}
+
+	/**
+	 * Obtener 64 bits del mapa de bits
+	 * @param word Mitad del mapa, 0 para el primario (campos 1 a 64) y 1 para el secundario (campos 65 a 128)
+	 * @return Bits del mapa, el bit más significativo corresponde al primer campo de la mitad
+	 */
+	public long getBitmapWord(int word)
+	{
+		long value = 0;
+		for(int i = word*8; i < word*8 + 8; ++i)
+		{
+			value = (value << 8) | (((rawData != null) && (i < rawLen)) ? (rawData[rawOffset + i] & 0xFF) : 0);
+		}
+		return value;
+	}
+
+	/**
+	 * Establecer los datos del mapa de bits en el buffer propio del campo
+	 * @param primary Mapa primario (campos 1 a 64)
+	 * @param secondary Mapa secundario (campos 65 a 128), si no es cero el mapa ocupa el doble
+	 */
+	void setBitmap(long primary, long secondary)
+	{
+		strData = null;
+		if(!checkConfig())
+		{
+			clearData();
+			return;
+		}
+		int len = (secondary != 0) ? spec.getMaxLen()*2 : spec.getMaxLen();
+		ensureOwn(len);
+		for(int i = 0; i < len; ++i)
+		{
+			long word = (i < 8) ? primary : (i < 16) ? secondary : 0;
+			ownData[i] = (byte) (word >>> (56 - 8*(i%8)));
+		}
+		rawData = ownData;
+		rawOffset = 0;
+		rawLen = len;
+		fieldLen = len;
 	}
 	
 	/**
@@ -738,8 +1296,7 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public Field8583 setFieldId(EField fieldId)
 	{
-		this.fieldId = fieldId;
-		return this;
+		return setConfig(new FieldSpec(fieldId, spec.getDataType(), spec.getAlign(), spec.getLenType(), spec.getMaxLen(), spec.getPadChar()));
 	}
 	
 	/**
@@ -748,27 +1305,26 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public EField getFieldId()
 	{
-		return fieldId;
+		return spec.getFieldId();
 	}
 
 	/**
-	 * Establecer nmero de bit (-1 a 63 donde -1 y 0 son el TPDU y el MTI respectivamente)
-	 * @param fieldNumber Nmero de bit
+	 * Establecer número de bit (-1 a 128 donde -1 y 0 son el TPDU y el MTI respectivamente)
+	 * @param fieldNumber Número de bit
 	 * @return Instancia
 	 */
 	public Field8583 setFieldNumber(int fieldNumber)
 	{
-		this.fieldId = EField.fromNumber(fieldNumber);
-		return this;
+		return setFieldId(EField.fromNumber(fieldNumber));
 	}
 	
 	/**
-	 * Obtener el nmero de bit
-	 * @return Nmero de bit
+	 * Obtener el número de bit
+	 * @return Número de bit
 	 */
 	public int getFieldNumber()
 	{
-		return fieldId.number();
+		return spec.getFieldId().number();
 	}
 	
 	/**
@@ -778,8 +1334,7 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public Field8583 setDataType(EDataType dataType)
 	{
-		this.dataType = dataType;
-		return this;
+		return setConfig(new FieldSpec(spec.getFieldId(), dataType, spec.getAlign(), spec.getLenType(), spec.getMaxLen(), spec.getPadChar()));
 	}
 	
 	/**
@@ -788,27 +1343,26 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public EDataType getDataType()
 	{
-		return dataType;
+		return spec.getDataType();
 	}
 	
 	/**
-	 * Establecer la alineacin de datos
-	 * @param align Alineacin de datos
+	 * Establecer la alineación de datos
+	 * @param align Alineación de datos
 	 * @return Instancia
 	 */
 	public Field8583 setAlign(EAlign align)
 	{
-		this.align = align;
-		return this;
+		return setConfig(new FieldSpec(spec.getFieldId(), spec.getDataType(), align, spec.getLenType(), spec.getMaxLen(), spec.getPadChar()));
 	}
 	
 	/**
-	 * Obtener la alineacin de datos
-	 * @return Alineacin de datos
+	 * Obtener la alineación de datos
+	 * @return Alineación de datos
 	 */
 	public EAlign getAlign()
 	{
-		return align;
+		return spec.getAlign();
 	}
 	
 	/**
@@ -818,8 +1372,7 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public Field8583 setLenType(ELenType eLenType)
 	{
-		this.lenType = eLenType;
-		return this;
+		return setConfig(new FieldSpec(spec.getFieldId(), spec.getDataType(), spec.getAlign(), eLenType, spec.getMaxLen(), spec.getPadChar()));
 	}
 	
 	/**
@@ -828,27 +1381,26 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public ELenType getLenType()
 	{
-		return lenType;
+		return spec.getLenType();
 	}
 	
 	/**
-	 * Establecer el mximo largo de campo
-	 * @param maxLen Mximo largo de campo
+	 * Establecer el máximo largo de campo
+	 * @param maxLen Máximo largo de campo
 	 * @return Instancia
 	 */
 	public Field8583 setMaxLen(int maxLen)
 	{
-		this.maxLen = maxLen;
-		return this;
+		return setConfig(new FieldSpec(spec.getFieldId(), spec.getDataType(), spec.getAlign(), spec.getLenType(), maxLen, spec.getPadChar()));
 	}
 	
 	/**
-	 * Obtener el mximo largo de campo
-	 * @return Mximo largo de campo
+	 * Obtener el máximo largo de campo
+	 * @return Máximo largo de campo
 	 */
 	public int getMaxLen()
 	{
-		return maxLen;
+		return spec.getMaxLen();
 	}
 
 	/**
@@ -858,8 +1410,7 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public Field8583 setPadChar(char padChar)
 	{
-		this.padChar = padChar;
-		return this;
+		return setConfig(new FieldSpec(spec.getFieldId(), spec.getDataType(), spec.getAlign(), spec.getLenType(), spec.getMaxLen(), padChar));
 	}
 	
 	/**
@@ -868,7 +1419,7 @@ public class Field8583 implements Comparable<Field8583>
 	 */
 	public char getPadChar()
 	{
-		return padChar;
+		return spec.getPadChar();
 	}
 	
 	/**
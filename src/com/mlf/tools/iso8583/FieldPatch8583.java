@@ -0,0 +1,266 @@
+package com.mlf.tools.iso8583;
+
+import com.mlf.tools.CodecTools;
+import com.mlf.tools.EAlign;
+import com.mlf.tools.Log;
+import com.mlf.tools.StrUtils;
+
+/**
+ * Modificación de un campo de largo fijo directamente dentro de un mensaje ya armado. Como el nuevo valor ocupa
+ * los mismos bytes que el anterior, el mensaje no cambia de largo y no hace falta parsearlo ni volver a armarlo:
+ * la posición del campo se calcula una vez y el valor se escribe en su lugar con el mismo ajuste que setData,
+ * sin crear cadenas intermedias. Sirve para retransmisiones o reversos generados desde un mensaje guardado,
+ * cambiando por ejemplo el número de traza (11), la hora y fecha locales (12 y 13), el número de referencia (37)
+ * o el código de respuesta (39). La instancia no guarda estado entre llamadas y puede compartirse entre hilos
+ * @author Mario
+ */
+public final class FieldPatch8583
+{
+	private final FieldSpec spec;	// Configuración del campo
+	private final int offset;		// Posición de los datos del campo desde el inicio del mensaje, -1 si no es válido
+	private final int size;			// Bytes de datos del campo
+	private final int chars;		// Caracteres del valor ajustado
+
+	/**
+	 * Constructor
+	 * @param spec Configuración del campo, debe ser de largo fijo
+	 * @param offset Posición de los datos del campo desde el inicio del mensaje
+	 */
+	public FieldPatch8583(FieldSpec spec, int offset)
+	{
+		super();
+		this.spec = spec;
+		int len = spec.getMaxLen();
+		switch(spec.getDataType())
+		{
+			case BCD:
+			case TRACK:
+				chars = len;
+				size = (len + 1)/2;
+				break;
+			case BINARY:
+				chars = len*2;
+				size = len;
+				break;
+			case ASC_HEX:
+				chars = len;
+				size = len*2;
+				break;
+			case HEXSTRING:
+			case NUMERIC:
+			case TEXT:
+				chars = len;
+				size = len;
+				break;
+			default:
+				chars = 0;
+				size = 0;
+				break;
+		}
+		if(!spec.isValid() || (spec.getLenType() != ELenType.FL) || (size == 0))
+		{
+			Log.err("Field " + spec.getFieldId() + " can't be patched, only valid fixed length fields");
+			offset = -1;
+		}
+		else if(offset < 0)
+		{
+			Log.err("Field " + spec.getFieldId() + " not present in message");
+		}
+		this.offset = offset;
+	}
+
+	/**
+	 * Constructor, ubica el campo en el mensaje que arma el procesador con sus datos actuales
+	 * @param proc Procesador con los datos del mensaje
+	 * @param fieldId ID del campo
+	 */
+	public FieldPatch8583(Proc8583 proc, EField fieldId)
+	{
+		this((fieldId == EField.UNDEFINED) ? FieldSpec.UNDEFINED : proc.getField(fieldId).getSpec(), proc.getBuildOffset(fieldId));
+	}
+
+	/**
+	 * Constructor, ubica el campo en un mensaje procesado
+	 * @param message Mensaje procesado, el campo queda ubicado respecto del inicio de su array (ver getBuffer)
+	 * @param fieldId ID del campo
+	 */
+	public FieldPatch8583(Message8583 message, EField fieldId)
+	{
+		this(message.getSpec().getField(fieldId), message.getOffset(fieldId.number()));
+	}
+
+	/**
+	 * Escribir un valor en el campo, ajustándolo al largo del campo igual que setData. En los campos BCD, TRACK y
+	 * BINARY el valor debe tener solo dígitos hexa ('=' también en TRACK), si no el mensaje no se modifica
+	 * @param message Array con el mensaje armado
+	 * @param start Posición de inicio del mensaje en el array
+	 * @param value Valor del campo
+	 * @return true si se escribió, false si hay error
+	 */
+	public boolean patch(byte[] message, int start, String value)
+	{
+		if(!check(message, start))
+		{
+			return false;
+		}
+		if(value == null)
+		{
+			value = "";
+		}
+		int n = value.length();
+		for(int i = 0; i < n; ++i)
+		{
+			char car = value.charAt(i);
+			switch(spec.getDataType())
+			{
+				case BCD:
+				case TRACK:
+				case BINARY:
+					if(!StrUtils.isHexaDigit(car) && !((car == '=') && (spec.getDataType() == EDataType.TRACK)))
+					{
+						Log.err("Field " + spec.getFieldId() + " invalid character '" + car + "' for " + spec.getDataType());
+						return false;
+					}
+					break;
+				default:
+					if(car >= 0x80)
+					{
+						// Fuera de ASCII el largo en bytes depende del juego de caracteres
+						return patchField(message, start, value);
+					}
+					break;
+			}
+		}
+		int shift = (spec.getAlign() == EAlign.LEFT) ? 0 : chars - n;
+		int pos = start + offset;
+		switch(spec.getDataType())
+		{
+			case BCD:
+			case TRACK:
+			case BINARY:
+				int odd = ((chars%2 != 0) && (spec.getAlign() == EAlign.RIGHT)) ? 1 : 0;
+				for(int i = -odd; i < chars; i += 2)
+				{
+					int high = (i < 0) ? spec.getPadChar() : charAt(value, i - shift);
+					int low = (i + 1 < chars) ? charAt(value, i + 1 - shift) : spec.getPadChar();
+					message[pos++] = (byte) ((CodecTools.nibble(high) << 4) | (CodecTools.nibble(low) & 0x0F));
+				}
+				break;
+			case ASC_HEX:
+				for(int i = 0; i < chars; ++i)
+				{
+					int car = charAt(value, i - shift);
+					message[pos++] = (byte) CodecTools.hexDigit((car >> 4) & 0x0F);
+					message[pos++] = (byte) CodecTools.hexDigit(car & 0x0F);
+				}
+				break;
+			default:
+				for(int i = 0; i < chars; ++i)
+				{
+					message[pos++] = (byte) charAt(value, i - shift);
+				}
+				break;
+		}
+		return true;
+	}
+
+	/**
+	 * Escribir un valor numérico en el campo, como patch con la cadena de sus dígitos
+	 * @param message Array con el mensaje armado
+	 * @param start Posición de inicio del mensaje en el array
+	 * @param value Valor del campo, no negativo
+	 * @return true si se escribió, false si hay error
+	 */
+	public boolean patch(byte[] message, int start, long value)
+	{
+		if(value < 0)
+		{
+			Log.err("Field " + spec.getFieldId() + " negative value " + value);
+			return false;
+		}
+		if(!check(message, start))
+		{
+			return false;
+		}
+		Field8583.encodeDigits(spec, chars, value, message, start + offset);
+		return true;
+	}
+
+	/**
+	 * Comprobar que el campo es válido y entra en el array
+	 * @param message Array con el mensaje armado
+	 * @param start Posición de inicio del mensaje en el array
+	 * @return true/false
+	 */
+	private boolean check(byte[] message, int start)
+	{
+		if(offset < 0)
+		{
+			return false;
+		}
+		if((start < 0) || (start + offset + size > message.length))
+		{
+			Log.err("Field " + spec.getFieldId() + " out of message bounds");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Escribir el valor armando el campo con setData, para los casos en que no se puede escribir directamente
+	 * @param message Array con el mensaje armado
+	 * @param start Posición de inicio del mensaje en el array
+	 * @param value Valor del campo
+	 * @return true si se escribió, false si el valor no ocupa los bytes del campo
+	 */
+	private boolean patchField(byte[] message, int start, String value)
+	{
+		Field8583 field = new Field8583(spec);
+		field.setData(value);
+		if(field.getRawLen() != size)
+		{
+			Log.err("Field " + spec.getFieldId() + " value doesn't fit in " + size + " bytes");
+			return false;
+		}
+		System.arraycopy(field.getRawBuffer(), field.getRawOffset(), message, start + offset, size);
+		return true;
+	}
+
+	/**
+	 * Obtener un caracter del valor ajustado
+	 * @param value Valor
+	 * @param i Posición en el valor, fuera del valor corresponde el caracter de relleno
+	 * @return Caracter
+	 */
+	private int charAt(String value, int i)
+	{
+		return ((i >= 0) && (i < value.length())) ? value.charAt(i) : spec.getPadChar();
+	}
+
+	/**
+	 * Obtener la posición de los datos del campo desde el inicio del mensaje
+	 * @return Posición, -1 si el campo no se puede modificar
+	 */
+	public int getOffset()
+	{
+		return offset;
+	}
+
+	/**
+	 * Obtener los bytes que ocupan los datos del campo
+	 * @return Bytes de datos
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Obtener la configuración del campo
+	 * @return Configuración del campo
+	 */
+	public FieldSpec getSpec()
+	{
+		return spec;
+	}
+}
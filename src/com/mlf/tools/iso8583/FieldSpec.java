@@ -0,0 +1,398 @@
+package com.mlf.tools.iso8583;
+
+import com.mlf.tools.CodecTools;
+import com.mlf.tools.EAlign;
+import com.mlf.tools.Log;
+
+/**
+ * Configuración inmutable de un campo ISO-8583. Se valida una sola vez al crearla y precalcula el plan de
+ * codificación (largo del prefijo, prefijo BCD o ASCII y relación entre largo informado y bytes de datos),
+ * de modo que el parseo y armado de los campos no vuelven a validar la configuración
+ * @author Mario
+ */
+public final class FieldSpec
+{
+	/** Configuración de un campo no definido */
+	public static final FieldSpec UNDEFINED = new FieldSpec(EField.UNDEFINED, EDataType.UNDEFINED, EAlign.UNDEFINED, ELenType.ND, 0, (char) 0);
+
+	private static final int DATA_SAME		= 0;	// Un byte por unidad de largo
+	private static final int DATA_NIBBLE	= 1;	// Un nibble por unidad de largo (BCD, TRACK)
+	private static final int DATA_DOUBLE	= 2;	// Dos bytes por unidad de largo (ASC_HEX)
+
+	private final EField fieldId;		// Campo
+	private final EDataType dataType;	// Tipo de dato
+	private final EAlign align;			// Alineación de datos
+	private final ELenType lenType;		// Tipo de longitud de campo
+	private final char padChar;			// Caracter de relleno
+	private final int maxLen;			// Máxima longitud del campo
+	private final String error;			// Error de configuración o null si es válida
+	private final int lenSize;			// Bytes que ocupa el prefijo de largo
+	private final boolean bcdLen;		// Prefijo de largo empaquetado BCD
+	private final int dataRule;			// Relación entre el largo informado y los bytes de datos
+
+	/**
+	 * Constructor
+	 * @param fieldId Campo
+	 * @param dataType Tipo de dato
+	 * @param align Alineación
+	 * @param lenType Tipo de largo
+	 * @param maxLen Máximo largo
+	 * @param padChar Caracter de relleno
+	 */
+	public FieldSpec(EField fieldId, EDataType dataType, EAlign align, ELenType lenType, int maxLen, char padChar)
+	{
+		super();
+		this.fieldId = fieldId;
+		this.dataType = dataType;
+		this.align = align;
+		this.lenType = lenType;
+		this.maxLen = maxLen;
+		this.padChar = normalizePad(dataType, padChar);
+		this.error = check();
+		switch(lenType)
+		{
+			case L2B:
+				lenSize = 1;
+				bcdLen = true;
+				break;
+			case L2N:
+				lenSize = 2;
+				bcdLen = false;
+				break;
+			case L3B:
+				lenSize = 2;
+				bcdLen = true;
+				break;
+			case L3N:
+				lenSize = 3;
+				bcdLen = false;
+				break;
+			case FL:
+			case ND:
+			default:
+				lenSize = 0;
+				bcdLen = false;
+				break;
+		}
+		switch(dataType)
+		{
+			case BCD:
+			case TRACK:
+				dataRule = DATA_NIBBLE;
+				break;
+			case ASC_HEX:
+				dataRule = DATA_DOUBLE;
+				break;
+			default:
+				dataRule = DATA_SAME;
+				break;
+		}
+	}
+
+	/**
+	 * Pasar a mayúscula el caracter de padeo de los tipos hexadecimales
+	 * @param dataType Tipo de dato
+	 * @param padChar Caracter de padeo
+	 * @return Caracter de padeo normalizado
+	 */
+	private static char normalizePad(EDataType dataType, char padChar)
+	{
+		switch(dataType)
+		{
+			case BINARY:
+			case ASC_HEX:
+			case HEXSTRING:
+				if((padChar >= 'a') && (padChar <= 'f'))
+				{
+					return (char) ('A' - 'a' + padChar);
+				}
+				break;
+			default:
+				break;
+		}
+		return padChar;
+	}
+
+	/**
+	 * Comprobar la configuración del campo
+	 * @return Descripción del error o null si la configuración es válida
+	 */
+	private String check()
+	{
+		if(fieldId == EField.UNDEFINED)
+		{
+			return "Bit num invalid: " + fieldId.number();
+		}
+		if(dataType == EDataType.UNDEFINED)
+		{
+			return "Bit " + fieldId.number() + " error. Data type Not Defined";
+		}
+		if(maxLen < 1)
+		{
+			return "Bit " + fieldId.number() + " error. Max len must be 1 or higher";
+		}
+		switch(lenType)
+		{
+			case FL:
+			case L2B:
+			case L2N:
+				if(maxLen > 99)
+				{
+					return "Bit " + fieldId.number() + ". error. Len > 99";
+				}
+				break;
+			case L3B:
+			case L3N:
+				if(maxLen > 999)
+				{
+					return "Bit " + fieldId.number() + ". error. Len > 999";
+				}
+				break;
+			case ND:
+			default:
+				return "Bit " + fieldId.number() + ". error. Len type Not Defined";
+		}
+		switch(dataType)
+		{
+			case TEXT:
+			case TRACK:
+				break;
+			case NUMERIC:
+			case BCD:
+				if((padChar < '0') || (padChar > '9'))
+				{
+					return "Bit " + fieldId.number() + " error. Type NUMERIC and  BCD need pad '0' to '9'";
+				}
+				break;
+			case BINARY:
+			case ASC_HEX:
+			case HEXSTRING:
+				if((padChar >= '0') && (padChar <= '9'))
+				{
+					// Valid
+				}
+				else if((padChar >= 'A') && (padChar <= 'F'))
+				{
+					// Valid
+				}
+				else
+				{
+					return "Bit " + fieldId.number() + " error. Type BINARY, HEXSTRING and HEX_STR need pad '0' to '9' or 'A' to 'F'";
+				}
+				break;
+			case UNDEFINED:
+			default:
+				return "Bit " + fieldId.number() + " error. Data type Not Defined";
+		}
+		return null;
+	}
+
+	/**
+	 * Saber si la configuración es válida
+	 * @return true/false
+	 */
+	public boolean isValid()
+	{
+		return (error == null);
+	}
+
+	/**
+	 * Obtener la descripción del error de configuración
+	 * @return Descripción del error o null si la configuración es válida
+	 */
+	public String getError()
+	{
+		return error;
+	}
+
+	/**
+	 * Saber si la configuración corresponde a un campo en uso (con tipo de dato o largo definido)
+	 * @return true/false
+	 */
+	public boolean isDefined()
+	{
+		return (dataType != EDataType.UNDEFINED) || (maxLen > 0);
+	}
+
+	/**
+	 * Obtener la cantidad de bytes que ocupan los datos para un largo informado
+	 * @param recLen Largo informado
+	 * @return Bytes de datos
+	 */
+	public int dataLen(int recLen)
+	{
+		switch(dataRule)
+		{
+			case DATA_NIBBLE:
+				return (recLen + recLen%2)/2;
+			case DATA_DOUBLE:
+				return recLen*2;
+			default:
+				return recLen;
+		}
+	}
+
+	/**
+	 * Leer el largo informado en el prefijo del campo
+	 * @param message Array de bytes
+	 * @param offset Posición del prefijo
+	 * @return Largo informado (el máximo si el campo es de largo fijo) o -1 si el prefijo no es numérico
+	 */
+	int readLen(byte[] message, int offset)
+	{
+		if(lenSize == 0)
+		{
+			return maxLen;
+		}
+		int value = 0;
+		for(int i = offset; i < offset + lenSize; ++i)
+		{
+			if(bcdLen)
+			{
+				int digits = CodecTools.bcd(message[i]);
+				if(digits < 0)
+				{
+					return -1;
+				}
+				value = value*100 + digits;
+			}
+			else
+			{
+				if((message[i] < '0') || (message[i] > '9'))
+				{
+					return -1;
+				}
+				value = value*10 + (message[i] - '0');
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Leer y validar el largo informado del campo, comprobando que el campo completo entre en el mensaje
+	 * @param message Array de bytes
+	 * @param offset Posición de inicio del campo
+	 * @param end Posición siguiente al último byte válido del array
+	 * @return Largo informado, -1 si hay error
+	 */
+	int scan(byte[] message, int offset, int end)
+	{
+		if(end - offset < lenSize)
+		{
+			Log.err("Bit " + fieldId.number() + " error. Field to short " + (end - offset));
+			return -1;
+		}
+		int recLen = readLen(message, offset);
+		if(recLen < 0 || recLen > maxLen)
+		{
+			Log.err("Bit " + fieldId.number() + " error. Invalid length " + recLen);
+			return -1;
+		}
+		if(end - offset < lenSize + dataLen(recLen))
+		{
+			Log.err("Bit " + fieldId.number() + " error. Field to short " + (end - offset));
+			return -1;
+		}
+		return recLen;
+	}
+
+	/**
+	 * Obtener los bytes que ocupa el campo a partir de los bytes disponibles, para el parseo incremental
+	 * @param message Array de bytes
+	 * @param offset Posición de inicio del campo
+	 * @param avail Bytes disponibles a partir del inicio del campo
+	 * @return Bytes del campo (prefijo y datos), 0 si todavía no está completo el prefijo de largo,
+	 * -1 si el largo o la configuración no son válidos
+	 */
+	int fieldSize(byte[] message, int offset, int avail)
+	{
+		if(!isValid())
+		{
+			Log.err(error);
+			return -1;
+		}
+		if(avail < lenSize)
+		{
+			return 0;
+		}
+		int recLen = readLen(message, offset);
+		if(recLen < 0 || recLen > maxLen)
+		{
+			Log.err("Bit " + fieldId.number() + " error. Invalid length " + recLen);
+			return -1;
+		}
+		return lenSize + dataLen(recLen);
+	}
+
+	/**
+	 * Obtener la cantidad de bytes que ocupa el prefijo de largo
+	 * @return Bytes del prefijo (0 para largo fijo)
+	 */
+	public int getLenSize()
+	{
+		return lenSize;
+	}
+
+	/**
+	 * Saber si el prefijo de largo está empaquetado BCD
+	 * @return true/false
+	 */
+	public boolean isBcdLen()
+	{
+		return bcdLen;
+	}
+
+	/**
+	 * Obtener el campo
+	 * @return Campo
+	 */
+	public EField getFieldId()
+	{
+		return fieldId;
+	}
+
+	/**
+	 * Obtener el tipo de dato
+	 * @return Tipo de dato
+	 */
+	public EDataType getDataType()
+	{
+		return dataType;
+	}
+
+	/**
+	 * Obtener la alineación de datos
+	 * @return Alineación de datos
+	 */
+	public EAlign getAlign()
+	{
+		return align;
+	}
+
+	/**
+	 * Obtener el tipo de largo de campo
+	 * @return Tipo de largo de campo
+	 */
+	public ELenType getLenType()
+	{
+		return lenType;
+	}
+
+	/**
+	 * Obtener el máximo largo de campo
+	 * @return Máximo largo de campo
+	 */
+	public int getMaxLen()
+	{
+		return maxLen;
+	}
+
+	/**
+	 * Obtener el caracter de padeo
+	 * @return Caracter de padeo
+	 */
+	public char getPadChar()
+	{
+		return padChar;
+	}
+}
@@ -0,0 +1,409 @@
+package com.mlf.tools.iso8583;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import com.mlf.tools.Log;
+
+/**
+ * Lectura y escritura de mensajes ISO-8583 precedidos por un encabezado de largo, sobre flujos y canales. La lectura
+ * usa un único buffer en el que pueden quedar varios mensajes seguidos, que se separan sin copiarlos: cada mensaje
+ * leído queda en el buffer hasta la próxima lectura y puede parsearse directamente desde ahí. La escritura envía el
+ * encabezado y el mensaje en una sola operación
+ * @author Mario
+ */
+public final class FrameCodec8583
+{
+	private static final int INITIAL_SIZE = 4096;
+
+	private final EFrameHeader header;				// Encabezado de largo
+	private byte[] rbuf = new byte[INITIAL_SIZE];	// Buffer de lectura
+	private ByteBuffer rbb = ByteBuffer.wrap(rbuf);	// Vista del buffer de lectura para los canales
+	private int start;								// Inicio de los bytes leídos sin procesar
+	private int end;								// Fin de los bytes leídos
+	private int frameOffset;						// Posición del último mensaje leído
+	private int frameLen;							// Largo del último mensaje leído
+	private byte[] wbuf = new byte[0];				// Buffer de escritura
+	private final byte[] hbuf = new byte[4];		// Encabezado a escribir
+	private final ByteBuffer hbb = ByteBuffer.wrap(hbuf);
+	private final ByteBuffer[] gather = new ByteBuffer[2];
+
+	/**
+	 * Constructor
+	 * @param header Encabezado de largo, debe ser distinto de NONE
+	 */
+	public FrameCodec8583(EFrameHeader header)
+	{
+		super();
+		if(header == EFrameHeader.NONE)
+		{
+			Log.err("Frame header NONE can't delimit messages, using BINARY_2");
+			header = EFrameHeader.BINARY_2;
+		}
+		this.header = header;
+	}
+
+	//----- Lectura -------------------------------------------------------------------------------
+
+	/**
+	 * Leer el próximo mensaje desde un flujo, bloqueando hasta completarlo. Si ya hay un mensaje completo en el
+	 * buffer no se lee del flujo
+	 * @param in Flujo de entrada
+	 * @return Largo del mensaje (ver getFrameBuffer y getFrameOffset), -1 al final del flujo o si el encabezado
+	 * no es válido
+	 * @throws IOException Error de lectura
+	 */
+	public int readFrame(InputStream in) throws IOException
+	{
+		while(true)
+		{
+			int len = nextFrame();
+			if(len != 0)
+			{
+				return len;
+			}
+			prepareRead();
+			int n = in.read(rbuf, end, rbuf.length - end);
+			if(n < 0)
+			{
+				return endOfStream();
+			}
+			end += n;
+		}
+	}
+
+	/**
+	 * Leer el próximo mensaje desde un canal. En un canal bloqueante espera hasta completarlo, en uno no bloqueante
+	 * lee lo disponible y retorna 0 si el mensaje todavía no está completo
+	 * @param ch Canal de entrada
+	 * @return Largo del mensaje (ver getFrameBuffer y getFrameOffset), 0 si falta parte del mensaje, -1 al final
+	 * del canal o si el encabezado no es válido
+	 * @throws IOException Error de lectura
+	 */
+	public int readFrame(ReadableByteChannel ch) throws IOException
+	{
+		while(true)
+		{
+			int len = nextFrame();
+			if(len != 0)
+			{
+				return len;
+			}
+			prepareRead();
+			rbb.limit(rbuf.length).position(end);
+			int n = ch.read(rbb);
+			if(n < 0)
+			{
+				return endOfStream();
+			}
+			if(n == 0)
+			{
+				return 0;
+			}
+			end += n;
+		}
+	}
+
+	/**
+	 * Separar el próximo mensaje completo de los bytes ya leídos, descartando los mensajes vacíos
+	 * @return Largo del mensaje, 0 si no hay un mensaje completo, -1 si el encabezado no es válido
+	 */
+	private int nextFrame()
+	{
+		while(end - start >= header.size())
+		{
+			int len = header.decode(rbuf, start);
+			if(len < 0)
+			{
+				Log.err("Invalid frame header");
+				start = end;
+				return -1;
+			}
+			if(end - start - header.size() < len)
+			{
+				return 0;
+			}
+			frameOffset = start + header.size();
+			frameLen = len;
+			start = frameOffset + len;
+			if(len > 0)
+			{
+				return len;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Dejar lugar en el buffer de lectura para el resto del mensaje en curso, moviendo al inicio los bytes sin
+	 * procesar y agrandando el buffer si el mensaje no entra
+	 */
+	private void prepareRead()
+	{
+		int pending = end - start;
+		int need = header.size();
+		if(pending >= header.size())
+		{
+			need += header.decode(rbuf, start);
+		}
+		if((start > 0) && ((rbuf.length - start < need) || (end == rbuf.length)))
+		{
+			System.arraycopy(rbuf, start, rbuf, 0, pending);
+			start = 0;
+			end = pending;
+		}
+		if(rbuf.length < need)
+		{
+			byte[] grown = new byte[Math.max(need, rbuf.length*2)];
+			System.arraycopy(rbuf, start, grown, 0, pending);
+			rbuf = grown;
+			rbb = ByteBuffer.wrap(rbuf);
+			start = 0;
+			end = pending;
+		}
+	}
+
+	/**
+	 * Fin del flujo
+	 * @return -1
+	 */
+	private int endOfStream()
+	{
+		if(end > start)
+		{
+			Log.err("End of stream with incomplete message, " + (end - start) + " bytes discarded");
+			start = end;
+		}
+		return -1;
+	}
+
+	/**
+	 * Obtener el buffer que contiene el último mensaje leído, válido hasta la próxima lectura
+	 * @return Buffer de lectura
+	 */
+	public byte[] getFrameBuffer()
+	{
+		return rbuf;
+	}
+
+	/**
+	 * Obtener la posición del último mensaje leído dentro del buffer de lectura
+	 * @return Posición del mensaje
+	 */
+	public int getFrameOffset()
+	{
+		return frameOffset;
+	}
+
+	/**
+	 * Obtener el largo del último mensaje leído
+	 * @return Largo del mensaje
+	 */
+	public int getFrameLength()
+	{
+		return frameLen;
+	}
+
+	/**
+	 * Obtener una copia del último mensaje leído
+	 * @return Mensaje
+	 */
+	public byte[] getFrame()
+	{
+		byte[] frame = new byte[frameLen];
+		System.arraycopy(rbuf, frameOffset, frame, 0, frameLen);
+		return frame;
+	}
+
+	/**
+	 * Parsear el último mensaje leído sin copiarlo. Los campos del procesador referencian el buffer de lectura,
+	 * por lo que sus datos son válidos hasta la próxima lectura
+	 * @param proc Procesador
+	 * @return Array con los campos del mensaje ISO-8583, vacío si el mensaje tiene errores
+	 */
+	public Field8583[] parseFrame(Proc8583 proc)
+	{
+		return proc.ParseISO8583(rbuf, frameOffset, frameLen);
+	}
+
+	/**
+	 * Saber si quedan bytes leídos sin procesar, por ejemplo otro mensaje que llegó junto con el anterior
+	 * @return true/false
+	 */
+	public boolean hasBuffered()
+	{
+		return end > start;
+	}
+
+	//----- Escritura -----------------------------------------------------------------------------
+
+	/**
+	 * Escribir un mensaje con su encabezado en una sola escritura
+	 * @param out Flujo de salida
+	 * @param message Array con el mensaje
+	 * @param offset Posición del mensaje
+	 * @param len Largo del mensaje
+	 * @return Bytes escritos, 0 si el mensaje no entra en el encabezado
+	 * @throws IOException Error de escritura
+	 */
+	public int writeFrame(OutputStream out, byte[] message, int offset, int len) throws IOException
+	{
+		if(!checkLen(len))
+		{
+			return 0;
+		}
+		ensureWrite(header.size() + len);
+		header.encode(len, wbuf, 0);
+		System.arraycopy(message, offset, wbuf, header.size(), len);
+		out.write(wbuf, 0, header.size() + len);
+		return header.size() + len;
+	}
+
+	/**
+	 * Armar un mensaje directamente a continuación del encabezado y escribirlo en una sola escritura
+	 * @param out Flujo de salida
+	 * @param proc Procesador con los datos del mensaje
+	 * @return Bytes escritos, 0 si hay error
+	 * @throws IOException Error de escritura
+	 */
+	public int writeFrame(OutputStream out, Proc8583 proc) throws IOException
+	{
+		int len = buildFrame(proc);
+		if(len > 0)
+		{
+			out.write(wbuf, 0, len);
+		}
+		return len;
+	}
+
+	/**
+	 * Escribir un mensaje con su encabezado. Si el canal admite escritura agrupada se escriben ambos en una sola
+	 * operación, sin copiar el mensaje. Está pensado para canales bloqueantes: en uno no bloqueante reintenta hasta
+	 * completar la escritura
+	 * @param ch Canal de salida
+	 * @param message Array con el mensaje
+	 * @param offset Posición del mensaje
+	 * @param len Largo del mensaje
+	 * @return Bytes escritos, 0 si el mensaje no entra en el encabezado
+	 * @throws IOException Error de escritura
+	 */
+	public int writeFrame(WritableByteChannel ch, byte[] message, int offset, int len) throws IOException
+	{
+		if(!checkLen(len))
+		{
+			return 0;
+		}
+		header.encode(len, hbuf, 0);
+		hbb.limit(header.size()).position(0);
+		ByteBuffer body = ByteBuffer.wrap(message, offset, len);
+		if(ch instanceof GatheringByteChannel)
+		{
+			gather[0] = hbb;
+			gather[1] = body;
+			while(body.hasRemaining())
+			{
+				((GatheringByteChannel) ch).write(gather);
+			}
+			gather[1] = null;
+		}
+		else
+		{
+			writeFully(ch, hbb);
+			writeFully(ch, body);
+		}
+		return header.size() + len;
+	}
+
+	/**
+	 * Armar un mensaje directamente a continuación del encabezado y escribirlo en una sola escritura
+	 * @param ch Canal de salida
+	 * @param proc Procesador con los datos del mensaje
+	 * @return Bytes escritos, 0 si hay error
+	 * @throws IOException Error de escritura
+	 */
+	public int writeFrame(WritableByteChannel ch, Proc8583 proc) throws IOException
+	{
+		int len = buildFrame(proc);
+		if(len > 0)
+		{
+			writeFully(ch, ByteBuffer.wrap(wbuf, 0, len));
+		}
+		return len;
+	}
+
+	/**
+	 * Armar el encabezado y el mensaje en el buffer de escritura
+	 * @param proc Procesador con los datos del mensaje
+	 * @return Bytes armados, 0 si hay error
+	 */
+	private int buildFrame(Proc8583 proc)
+	{
+		int len = proc.getBuildLen();
+		if(!checkLen(len))
+		{
+			return 0;
+		}
+		ensureWrite(header.size() + len);
+		header.encode(len, wbuf, 0);
+		if(proc.BuilISO8583(wbuf, header.size()) != len)
+		{
+			return 0;
+		}
+		return header.size() + len;
+	}
+
+	/**
+	 * Comprobar que el largo del mensaje entra en el encabezado
+	 * @param len Largo del mensaje
+	 * @return true/false
+	 */
+	private boolean checkLen(int len)
+	{
+		if((len < 0) || (len > header.getMaxLen()))
+		{
+			Log.err("Message len " + len + " exceeds frame header " + header + " max len " + header.getMaxLen());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Agrandar el buffer de escritura si hace falta
+	 * @param len Bytes necesarios
+	 */
+	private void ensureWrite(int len)
+	{
+		if(wbuf.length < len)
+		{
+			wbuf = new byte[Math.max(len, INITIAL_SIZE)];
+		}
+	}
+
+	/**
+	 * Escribir todo el contenido del buffer en el canal
+	 * @param ch Canal de salida
+	 * @param buffer Buffer a escribir
+	 * @throws IOException Error de escritura
+	 */
+	private static void writeFully(WritableByteChannel ch, ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			ch.write(buffer);
+		}
+	}
+
+	/**
+	 * Obtener el encabezado de largo
+	 * @return Encabezado de largo
+	 */
+	public EFrameHeader getHeader()
+	{
+		return header;
+	}
+}
@@ -0,0 +1,418 @@
+package com.mlf.tools.iso8583;
+
+import java.nio.ByteBuffer;
+import java.util.function.Supplier;
+
+import com.mlf.tools.Log;
+
+/**
+ * Parseo incremental de mensajes ISO-8583 que llegan en partes, por ejemplo desde un socket no bloqueante. Recibe
+ * los bytes a medida que se leen y conserva su estado entre llamadas, tanto dentro del encabezado de largo como
+ * dentro de un campo. Cada campo se parsea apenas se completan sus bytes, y al completarse el mensaje se entrega
+ * el procesador con los campos. Los bytes del mensaje se copian una sola vez al buffer de lectura del procesador,
+ * que lo reutiliza en los mensajes siguientes si proviene de un pool
+ * @author Mario
+ */
+public final class IncrementalParser8583
+{
+	private static final int STATE_HEADER	= 0;	// Leyendo el encabezado de largo
+	private static final int STATE_BODY		= 1;	// Leyendo el mensaje
+	private static final int STATE_SKIP		= 2;	// Descartando el resto de un mensaje con error
+	private static final int STATE_ERROR	= 3;	// Error sin encabezado de largo, no se puede continuar
+
+	private static final int PART_TPDU		= 0;
+	private static final int PART_MTI		= 1;
+	private static final int PART_BITMAP	= 2;
+	private static final int PART_FIELDS	= 3;
+
+	private final Supplier<Proc8583> source;	// Origen de los procesadores para cada mensaje
+	private final EFrameHeader header;			// Encabezado de largo
+	private final byte[] head = new byte[4];	// Bytes recibidos del encabezado
+	private int headCount;						// Cantidad de bytes recibidos del encabezado
+	private int state = STATE_HEADER;
+	private int frameLen;						// Largo del mensaje según el encabezado, -1 si no hay encabezado
+	private int skip;							// Bytes a descartar del mensaje con error
+
+	private Proc8583 proc;						// Procesador del mensaje en curso
+	private byte[] buf;							// Bytes recibidos del mensaje en curso
+	private int count;							// Cantidad de bytes recibidos del mensaje
+	private int pos;							// Posición del próximo campo a parsear
+	private int part;							// Parte del mensaje a parsear
+	private long primary;						// Campos 2 a 64 pendientes de parsear
+	private long secondary;						// Campos 65 a 128 pendientes de parsear
+
+	/**
+	 * Constructor
+	 * @param source Origen de los procesadores, por ejemplo el método acquire de un Proc8583Pool
+	 * @param header Encabezado de largo que precede a cada mensaje
+	 */
+	public IncrementalParser8583(Supplier<Proc8583> source, EFrameHeader header)
+	{
+		super();
+		this.source = source;
+		this.header = header;
+	}
+
+	/**
+	 * Constructor, crea un procesador nuevo para cada mensaje
+	 * @param spec Configuración de los campos
+	 * @param header Encabezado de largo que precede a cada mensaje
+	 */
+	public IncrementalParser8583(MessageSpec spec, EFrameHeader header)
+	{
+		this(() -> new Proc8583(spec), header);
+	}
+
+	/**
+	 * Procesar los bytes disponibles en el buffer, entre su posición y su límite. La posición avanza la cantidad de
+	 * bytes consumidos, que nunca pasan del fin del mensaje en curso: si el buffer contiene más de un mensaje hay que
+	 * volver a llamar mientras se obtengan mensajes
+	 * @param src Buffer con los bytes recibidos
+	 * @return Procesador con el mensaje completo o null si todavía faltan bytes o hay un error
+	 */
+	public Proc8583 feed(ByteBuffer src)
+	{
+		while(true)
+		{
+			switch(state)
+			{
+				case STATE_HEADER:
+					if(!src.hasRemaining())
+					{
+						return null;
+					}
+					if(!readHeader(src))
+					{
+						continue;
+					}
+					break;
+				case STATE_BODY:
+					int need = advance();
+					if(need == 0)
+					{
+						return complete();
+					}
+					if(need < 0)
+					{
+						fail();
+						continue;
+					}
+					if((frameLen >= 0) && (count == frameLen))
+					{
+						Log.err("Message to short for frame length " + frameLen);
+						fail();
+						continue;
+					}
+					if(!src.hasRemaining())
+					{
+						return null;
+					}
+					// Con encabezado se copia todo lo disponible del mensaje, sin él solo lo que falta del campo
+					int len = Math.min(src.remaining(), (frameLen >= 0) ? frameLen - count : need);
+					buf = proc.inputBuffer(count + len, count);
+					src.get(buf, count, len);
+					count += len;
+					break;
+				case STATE_SKIP:
+					int len2 = Math.min(src.remaining(), skip);
+					src.position(src.position() + len2);
+					skip -= len2;
+					if(skip > 0)
+					{
+						return null;
+					}
+					state = STATE_HEADER;
+					break;
+				case STATE_ERROR:
+				default:
+					return null;
+			}
+		}
+	}
+
+	/**
+	 * Leer el encabezado de largo y comenzar el mensaje cuando se completa
+	 * @param src Buffer con los bytes recibidos
+	 * @return true si comenzó un mensaje, false si falta parte del encabezado o el mensaje está vacío
+	 */
+	private boolean readHeader(ByteBuffer src)
+	{
+		if(header == EFrameHeader.NONE)
+		{
+			begin(-1);
+			return true;
+		}
+		while((headCount < header.size()) && src.hasRemaining())
+		{
+			head[headCount++] = src.get();
+		}
+		if(headCount < header.size())
+		{
+			return false;
+		}
+		headCount = 0;
+		int len = header.decode(head, 0);
+		if(len < 0)
+		{
+			Log.err("Invalid frame header");
+			state = STATE_ERROR;
+			return false;
+		}
+		if(len == 0)
+		{
+			// Mensaje vacío (keep alive)
+			return false;
+		}
+		begin(len);
+		return true;
+	}
+
+	/**
+	 * Comenzar un mensaje
+	 * @param len Largo del mensaje, -1 si no se conoce
+	 */
+	private void begin(int len)
+	{
+		if(proc == null)
+		{
+			proc = source.get();
+		}
+		proc.clearData();
+		frameLen = len;
+		buf = proc.inputBuffer(Math.max(len, 0), 0);
+		count = 0;
+		pos = 0;
+		part = (proc.fieldAt(0).getMaxLen() > 0) ? PART_TPDU : PART_MTI;
+		state = STATE_BODY;
+	}
+
+	/**
+	 * Parsear los campos que ya están completos
+	 * @return 0 si el mensaje está completo, cantidad de bytes que faltan para avanzar o -1 si hay error
+	 */
+	private int advance()
+	{
+		while(true)
+		{
+			int avail = count - pos;
+			int index;
+			int size;
+			int used;
+			switch(part)
+			{
+				case PART_TPDU:
+				case PART_MTI:
+					index = part;
+					break;
+				case PART_BITMAP:
+					if(avail < 1)
+					{
+						return 1;
+					}
+					Field8583 bitmap = proc.fieldAt(2);
+					if(((buf[pos] & 0x80) != 0) && bitmap.getSpec().isValid())
+					{
+						size = bitmap.getMaxLen()*2;
+					}
+					else
+					{
+						size = bitmap.getSpec().fieldSize(buf, pos, avail);
+					}
+					if(size <= 0)
+					{
+						return (size < 0) ? -1 : 1;
+					}
+					if(!fits(size))
+					{
+						return -1;
+					}
+					if(avail < size)
+					{
+						return size - avail;
+					}
+					used = proc.parseBitmap(buf, pos, pos + size, proc.isLazyParse());
+					if(used == 0)
+					{
+						return -1;
+					}
+					pos += used;
+					primary = bitmap.getBitmapWord(0) & ~Long.MIN_VALUE;
+					secondary = bitmap.getBitmapWord(1);
+					part = PART_FIELDS;
+					continue;
+				case PART_FIELDS:
+				default:
+					index = nextField();
+					if(index < 0)
+					{
+						if((frameLen >= 0) && (count < frameLen))
+						{
+							// El resto del mensaje según el encabezado todavía no llegó
+							return frameLen - count;
+						}
+						if((frameLen >= 0) && (pos != frameLen))
+						{
+							Log.war("Frame length " + frameLen + ", message length " + pos);
+						}
+						return 0;
+					}
+					break;
+			}
+			FieldSpec fieldSpec = proc.fieldAt(index).getSpec();
+			size = fieldSpec.fieldSize(buf, pos, avail);
+			if(size < 0)
+			{
+				return -1;
+			}
+			if(size == 0)
+			{
+				return fieldSpec.getLenSize() - avail;
+			}
+			if(!fits(size))
+			{
+				return -1;
+			}
+			if(avail < size)
+			{
+				return size - avail;
+			}
+			used = proc.fieldAt(index).parseField(buf, pos, pos + size, proc.isLazyParse());
+			if(used == 0)
+			{
+				return -1;
+			}
+			pos += used;
+			if(part != PART_FIELDS)
+			{
+				++part;
+			}
+			else
+			{
+				clearField(index);
+			}
+		}
+	}
+
+	/**
+	 * Comprobar que el campo entra en el largo informado por el encabezado
+	 * @param size Bytes del campo
+	 * @return true/false
+	 */
+	private boolean fits(int size)
+	{
+		if((frameLen >= 0) && (pos + size > frameLen))
+		{
+			Log.err("Field exceeds frame length " + frameLen + " at " + pos);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Obtener el próximo campo pendiente que está configurado, descartando los que no lo están
+	 * @return Posición del campo, -1 si no quedan campos
+	 */
+	private int nextField()
+	{
+		while((primary | secondary) != 0)
+		{
+			int number = (primary != 0) ? Long.numberOfLeadingZeros(primary) + 1 : Long.numberOfLeadingZeros(secondary) + 65;
+			if((number + 1 < Proc8583.FIELDS) && (proc.fieldAt(number + 1).getFieldNumber() == number))
+			{
+				return number + 1;
+			}
+			clearField(number + 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * Quitar un campo de los pendientes
+	 * @param index Posición del campo
+	 */
+	private void clearField(int index)
+	{
+		int number = index - 1;
+		if(number <= 64)
+		{
+			primary &= ~(Long.MIN_VALUE >>> (number - 1));
+		}
+		else
+		{
+			secondary &= ~(Long.MIN_VALUE >>> (number - 65));
+		}
+	}
+
+	/**
+	 * Entregar el mensaje completo y quedar listo para el siguiente
+	 * @return Procesador con el mensaje
+	 */
+	private Proc8583 complete()
+	{
+		Proc8583 done = proc;
+		done.setWire(buf);
+		proc = null;
+		buf = null;
+		state = STATE_HEADER;
+		return done;
+	}
+
+	/**
+	 * Descartar el mensaje en curso. Con encabezado de largo se descarta el resto del mensaje para seguir con el
+	 * siguiente, sin él no se puede ubicar el siguiente mensaje y hay que llamar a reset
+	 */
+	private void fail()
+	{
+		if(frameLen >= 0)
+		{
+			skip = frameLen - count;
+			state = STATE_SKIP;
+		}
+		else
+		{
+			state = STATE_ERROR;
+		}
+		proc.clearData();
+	}
+
+	/**
+	 * Descartar el mensaje en curso y el estado de error, el próximo byte recibido se toma como inicio de mensaje
+	 */
+	public void reset()
+	{
+		if(proc != null)
+		{
+			proc.clearData();
+		}
+		headCount = 0;
+		skip = 0;
+		state = STATE_HEADER;
+	}
+
+	/**
+	 * Saber si hay un mensaje recibido en parte
+	 * @return true/false
+	 */
+	public boolean isPartial()
+	{
+		return (state == STATE_BODY) || (headCount > 0);
+	}
+
+	/**
+	 * Saber si el flujo quedó en error por un mensaje inválido sin encabezado de largo (ver reset)
+	 * @return true/false
+	 */
+	public boolean hasError()
+	{
+		return state == STATE_ERROR;
+	}
+
+	/**
+	 * Obtener el encabezado de largo
+	 * @return Encabezado de largo
+	 */
+	public EFrameHeader getHeader()
+	{
+		return header;
+	}
+}
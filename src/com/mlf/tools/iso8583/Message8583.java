@@ -0,0 +1,481 @@
+package com.mlf.tools.iso8583;
+
+import java.util.Arrays;
+
+import com.mlf.tools.Log;
+
+/**
+ * Mensaje ISO-8583 compacto. Guarda el mensaje completo en un único array de bytes y, para cada campo, la posición
+ * y el largo de sus datos en tablas de enteros, junto con una máscara de 128 bits de los campos presentes. Los datos
+ * de los campos se leen directamente desde el array, sin crear un objeto por campo, por lo que conviene para mensajes
+ * que se retienen en memoria. Los arrays se reutilizan al procesar otro mensaje
+ * @author Mario
+ */
+public final class Message8583
+{
+	private final MessageSpec spec;		// Configuración de los campos
+	private final int[] offset;			// Posición de los datos de cada campo
+	private final int[] length;			// Bytes que ocupan los datos de cada campo, -1 si el campo no está presente
+	private final int[] fieldLen;		// Largo informado de cada campo
+	private byte[] buf;					// Mensaje completo
+	private int size;					// Largo del mensaje
+	private long present0;				// Campos presentes 1 a 64, el bit 63 corresponde al campo 1
+	private long present1;				// Campos presentes 65 a 128, el bit 63 corresponde al campo 65
+
+	/**
+	 * Constructor
+	 * @param spec Configuración de los campos, que se comparte sin copiarla
+	 */
+	public Message8583(MessageSpec spec)
+	{
+		super();
+		this.spec = spec;
+		offset = new int[spec.size()];
+		length = new int[spec.size()];
+		fieldLen = new int[spec.size()];
+		buf = new byte[0];
+		reset();
+	}
+
+	/**
+	 * Borrar los campos del mensaje conservando el array para el próximo mensaje
+	 */
+	public void reset()
+	{
+		Arrays.fill(length, -1);
+		size = 0;
+		present0 = 0;
+		present1 = 0;
+	}
+
+	/**
+	 * Procesar un mensaje ISO-8583, que se copia al array interno
+	 * @param message Array que contiene el mensaje ISO-8583
+	 * @param offset Posición de inicio del mensaje
+	 * @param len Largo del mensaje
+	 * @return Cantidad de bytes procesados, 0 si hay error
+	 */
+	public int ParseISO8583(byte[] message, int offset, int len)
+	{
+		reset();
+		if(buf.length < len)
+		{
+			buf = new byte[len];
+		}
+		System.arraycopy(message, offset, buf, 0, len);
+		size = len;
+		return scan();
+	}
+
+	/**
+	 * Procesar un mensaje ISO-8583, que se copia al array interno
+	 * @param message Mensaje ISO-8583
+	 * @return Cantidad de bytes procesados, 0 si hay error
+	 */
+	public int ParseISO8583(byte[] message)
+	{
+		return ParseISO8583(message, 0, message.length);
+	}
+
+	/**
+	 * Armar el mensaje con los datos de un procesador y dejarlo en el array interno. La configuración del
+	 * procesador debe ser compatible con la del mensaje
+	 * @param src Procesador de origen
+	 * @return Cantidad de bytes del mensaje, 0 si hay error
+	 */
+	public int set(Proc8583 src)
+	{
+		reset();
+		int len = src.getBuildLen();
+		if(buf.length < len)
+		{
+			buf = new byte[len];
+		}
+		size = src.BuilISO8583(buf, 0);
+		return scan();
+	}
+
+	/**
+	 * Ubicar los campos dentro del mensaje del array interno
+	 * @return Cantidad de bytes procesados, 0 si hay error
+	 */
+	private int scan()
+	{
+		int pos = 0;
+
+		// TPDU
+		if(spec.get(0).getMaxLen() > 0)
+		{
+			pos = scanField(0, pos);
+			if(pos < 0)
+			{
+				Log.err("Invalid TPDU");
+				return invalid();
+			}
+		}
+		// MTI
+		pos = scanField(1, pos);
+		if(pos < 0)
+		{
+			Log.err("Invalid MTI");
+			return invalid();
+		}
+		// Bitmap, el bit 1 indica que sigue el mapa secundario
+		pos = scanField(2, pos);
+		if(pos < 0)
+		{
+			Log.err("Invalid bitmap");
+			return invalid();
+		}
+		long primary = readBits(offset[2], length[2]);
+		long secondary = 0;
+		if(primary < 0)
+		{
+			if(size - pos < length[2])
+			{
+				Log.err("Invalid secondary bitmap");
+				return invalid();
+			}
+			secondary = readBits(pos, length[2]);
+			pos += length[2];
+			length[2] *= 2;
+			fieldLen[2] *= 2;
+		}
+		// Campos indicados en el bitmap, a partir del 2
+		pos = scanFields(primary & ~Long.MIN_VALUE, 0, pos);
+		if(pos >= 0)
+		{
+			pos = scanFields(secondary, 64, pos);
+		}
+		if(pos < 0)
+		{
+			return invalid();
+		}
+		return pos;
+	}
+
+	/**
+	 * Ubicar los campos indicados en una mitad del mapa de bits
+	 * @param bits Mitad del mapa de bits, el bit más significativo corresponde al primer campo
+	 * @param first Número del campo anterior al primero de la mitad (0 o 64)
+	 * @param pos Posición del primer campo en el mensaje
+	 * @return Posición siguiente al último campo, -1 si hay error
+	 */
+	private int scanFields(long bits, int first, int pos)
+	{
+		while(bits != 0)
+		{
+			int bit = Long.numberOfLeadingZeros(bits);
+			bits &= ~(Long.MIN_VALUE >>> bit);
+			int number = first + bit + 1;
+			if(number + 1 >= length.length)
+			{
+				Log.err("Bit " + number + " error. Field not configured");
+				return -1;
+			}
+			pos = scanField(number + 1, pos);
+			if(pos < 0)
+			{
+				return -1;
+			}
+			if(first == 0)
+			{
+				present0 |= Long.MIN_VALUE >>> bit;
+			}
+			else
+			{
+				present1 |= Long.MIN_VALUE >>> bit;
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * Ubicar un campo dentro del mensaje
+	 * @param index Posición del campo
+	 * @param pos Posición de inicio del campo en el mensaje
+	 * @return Posición siguiente al campo, -1 si hay error
+	 */
+	private int scanField(int index, int pos)
+	{
+		FieldSpec fieldSpec = spec.get(index);
+		if(!fieldSpec.isValid())
+		{
+			Log.err(fieldSpec.getError());
+			return -1;
+		}
+		int recLen = fieldSpec.scan(buf, pos, size);
+		if(recLen < 0)
+		{
+			return -1;
+		}
+		offset[index] = pos + fieldSpec.getLenSize();
+		length[index] = fieldSpec.dataLen(recLen);
+		fieldLen[index] = recLen;
+		return offset[index] + length[index];
+	}
+
+	/**
+	 * Leer hasta 8 bytes del mensaje como un entero de 64 bits (big endian)
+	 * @param pos Posición de inicio
+	 * @param len Bytes a leer
+	 * @return Valor leído, alineado a la izquierda
+	 */
+	private long readBits(int pos, int len)
+	{
+		long value = 0;
+		for(int i = 0; i < 8; ++i)
+		{
+			value = (value << 8) | ((i < len) ? (buf[pos + i] & 0xFF) : 0);
+		}
+		return value;
+	}
+
+	/**
+	 * Descartar un mensaje con error
+	 * @return 0
+	 */
+	private int invalid()
+	{
+		reset();
+		return 0;
+	}
+
+	/**
+	 * Saber si el campo está presente en el mensaje
+	 * @param fieldId ID del campo
+	 * @return true/false
+	 */
+	public boolean hasField(EField fieldId)
+	{
+		return hasField(fieldId.number());
+	}
+
+	/**
+	 * Saber si el campo está presente en el mensaje
+	 * @param fieldNumber Número del campo
+	 * @return true/false
+	 */
+	public boolean hasField(int fieldNumber)
+	{
+		if(fieldNumber < 2)
+		{
+			return (fieldNumber >= -1) && (length[fieldNumber + 1] >= 0);
+		}
+		if(fieldNumber <= 64)
+		{
+			return (present0 & (Long.MIN_VALUE >>> (fieldNumber - 1))) != 0;
+		}
+		if(fieldNumber <= 128)
+		{
+			return (present1 & (Long.MIN_VALUE >>> (fieldNumber - 65))) != 0;
+		}
+		return false;
+	}
+
+	/**
+	 * Obtener el siguiente campo de datos presente en el mensaje, para recorrerlos sin consultar cada número de campo
+	 * @param fieldNumber Número de campo a partir del cual buscar (sin incluirlo), 1 para obtener el primero
+	 * @return Número del siguiente campo presente, -1 si no hay más
+	 */
+	public int nextField(int fieldNumber)
+	{
+		int from = Math.max(fieldNumber, 1);
+		if(from < 64)
+		{
+			long bits = present0 & (-1L >>> from);
+			if(bits != 0)
+			{
+				return Long.numberOfLeadingZeros(bits) + 1;
+			}
+			from = 64;
+		}
+		if(from < 128)
+		{
+			long bits = present1 & (-1L >>> (from - 64));
+			if(bits != 0)
+			{
+				return Long.numberOfLeadingZeros(bits) + 65;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Obtener la posición del campo en las tablas
+	 * @param fieldNumber Número del campo
+	 * @return Posición del campo, -1 si no está presente
+	 */
+	private int indexOf(int fieldNumber)
+	{
+		int index = fieldNumber + 1;
+		if((index < 0) || (index >= length.length) || (length[index] < 0))
+		{
+			return -1;
+		}
+		return index;
+	}
+
+	/**
+	 * Obtener el largo del campo
+	 * @param fieldNumber Número del campo
+	 * @return Largo informado del campo, 0 si no está presente
+	 */
+	public int getLen(int fieldNumber)
+	{
+		int index = indexOf(fieldNumber);
+		return (index < 0) ? 0 : fieldLen[index];
+	}
+
+	/**
+	 * Obtener el largo del campo
+	 * @param fieldId ID del campo
+	 * @return Largo informado del campo, 0 si no está presente
+	 */
+	public int getLen(EField fieldId)
+	{
+		return getLen(fieldId.number());
+	}
+
+	/**
+	 * Obtener una cadena con los datos del campo
+	 * @param fieldNumber Número del campo
+	 * @return Cadena con los datos del campo, null si no está presente
+	 */
+	public String getData_str(int fieldNumber)
+	{
+		int index = indexOf(fieldNumber);
+		if(index < 0)
+		{
+			return null;
+		}
+		return Field8583.decode(spec.get(index), buf, offset[index], length[index], fieldLen[index]);
+	}
+
+	/**
+	 * Obtener una cadena con los datos del campo
+	 * @param fieldId ID del campo
+	 * @return Cadena con los datos del campo, null si no está presente
+	 */
+	public String getData_str(EField fieldId)
+	{
+		return getData_str(fieldId.number());
+	}
+
+	/**
+	 * Obtener una copia de los datos del campo
+	 * @param fieldNumber Número del campo
+	 * @return Datos del campo, null si no está presente
+	 */
+	public byte[] getData_raw(int fieldNumber)
+	{
+		int index = indexOf(fieldNumber);
+		if(index < 0)
+		{
+			return null;
+		}
+		return Arrays.copyOfRange(buf, offset[index], offset[index] + length[index]);
+	}
+
+	/**
+	 * Obtener una copia de los datos del campo
+	 * @param fieldId ID del campo
+	 * @return Datos del campo, null si no está presente
+	 */
+	public byte[] getData_raw(EField fieldId)
+	{
+		return getData_raw(fieldId.number());
+	}
+
+	/**
+	 * Obtener la posición de los datos del campo en el array del mensaje (ver getBuffer)
+	 * @param fieldNumber Número del campo
+	 * @return Posición de los datos, -1 si no está presente
+	 */
+	public int getOffset(int fieldNumber)
+	{
+		int index = indexOf(fieldNumber);
+		return (index < 0) ? -1 : offset[index];
+	}
+
+	/**
+	 * Obtener los bytes que ocupan los datos del campo en el array del mensaje (ver getBuffer)
+	 * @param fieldNumber Número del campo
+	 * @return Bytes de datos, -1 si no está presente
+	 */
+	public int getRawLen(int fieldNumber)
+	{
+		int index = indexOf(fieldNumber);
+		return (index < 0) ? -1 : length[index];
+	}
+
+	/**
+	 * Obtener un objeto de campo que referencia los datos del campo en el array del mensaje, sin copiarlos
+	 * @param fieldId ID del campo
+	 * @return Objeto de campo, null si no está presente
+	 */
+	public Field8583 getField(EField fieldId)
+	{
+		int index = indexOf(fieldId.number());
+		if(index < 0)
+		{
+			return null;
+		}
+		Field8583 field = new Field8583(spec.get(index));
+		field.setParsed(buf, offset[index], 0, length[index], fieldLen[index], true);
+		return field;
+	}
+
+	/**
+	 * Obtener el array interno del mensaje, válido hasta procesar otro mensaje
+	 * @return Array del mensaje
+	 */
+	public byte[] getBuffer()
+	{
+		return buf;
+	}
+
+	/**
+	 * Obtener el largo del mensaje
+	 * @return Largo del mensaje en bytes
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Obtener una copia del mensaje ISO-8583
+	 * @return Mensaje ISO-8583
+	 */
+	public byte[] BuilISO8583()
+	{
+		return Arrays.copyOf(buf, size);
+	}
+
+	/**
+	 * Copiar el mensaje ISO-8583 en un array a partir de la posición indicada
+	 * @param dest Array de destino
+	 * @param offset Posición de inicio del mensaje
+	 * @return Cantidad de bytes escritos, 0 si no hay lugar en el array
+	 */
+	public int BuilISO8583(byte[] dest, int offset)
+	{
+		if(dest.length - offset < size)
+		{
+			Log.err("Buffer to short " + (dest.length - offset) + ", message len " + size);
+			return 0;
+		}
+		System.arraycopy(buf, 0, dest, offset, size);
+		return size;
+	}
+
+	/**
+	 * Obtener la configuración de los campos
+	 * @return Configuración de los campos
+	 */
+	public MessageSpec getSpec()
+	{
+		return spec;
+	}
+}
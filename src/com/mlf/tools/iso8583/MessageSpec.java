@@ -0,0 +1,128 @@
+package com.mlf.tools.iso8583;
+
+import com.mlf.tools.Log;
+
+/**
+ * Configuración inmutable y validada de todos los campos de un mensaje ISO-8583. Se compila una sola vez,
+ * ya sea desde las llamadas a setConfig o desde loadConfig, y puede compartirse entre varios Proc8583
+ * @author Mario
+ */
+public final class MessageSpec
+{
+	private final FieldSpec[] fields;
+
+	/**
+	 * Constructor a partir de las configuraciones de los campos
+	 * @param specs Configuraciones de los campos, cada una se ubica según su campo
+	 */
+	public MessageSpec(FieldSpec... specs)
+	{
+		super();
+		fields = new FieldSpec[Proc8583.FIELDS];
+		for(int i = 0; i < fields.length; ++i)
+		{
+			fields[i] = FieldSpec.UNDEFINED;
+		}
+		for(FieldSpec spec : specs)
+		{
+			int index = spec.getFieldId().index();
+			if((index >= 0) && (index < fields.length))
+			{
+				fields[index] = spec;
+			}
+		}
+		check();
+	}
+
+	/**
+	 * Constructor a partir de los campos de un procesador
+	 * @param src Campos de origen
+	 */
+	MessageSpec(Field8583[] src)
+	{
+		super();
+		fields = new FieldSpec[src.length];
+		for(int i = 0; i < fields.length; ++i)
+		{
+			fields[i] = src[i].getSpec();
+		}
+		check();
+	}
+
+	/**
+	 * Logear una sola vez los errores de los campos configurados
+	 */
+	private void check()
+	{
+		for(FieldSpec spec : fields)
+		{
+			if(spec.isDefined() && !spec.isValid())
+			{
+				Log.err(spec.getError());
+			}
+		}
+	}
+
+	/**
+	 * Saber si la configuración corresponde a los campos dados
+	 * @param src Campos
+	 * @return true/false
+	 */
+	boolean matches(Field8583[] src)
+	{
+		if(src.length != fields.length)
+		{
+			return false;
+		}
+		for(int i = 0; i < fields.length; ++i)
+		{
+			if(src[i].getSpec() != fields[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Saber si la configuración permite procesar mensajes (MTI y bitmap válidos)
+	 * @return true/false
+	 */
+	public boolean isValid()
+	{
+		return getField(EField.MTI).isValid() && getField(EField.BITMAP).isValid();
+	}
+
+	/**
+	 * Obtener la cantidad de campos
+	 * @return Cantidad de campos
+	 */
+	public int size()
+	{
+		return fields.length;
+	}
+
+	/**
+	 * Obtener la configuración del campo según su posición
+	 * @param index Posición del campo (número de campo + 1)
+	 * @return Configuración del campo
+	 */
+	public FieldSpec get(int index)
+	{
+		return fields[index];
+	}
+
+	/**
+	 * Obtener la configuración de un campo
+	 * @param fieldId Campo
+	 * @return Configuración del campo
+	 */
+	public FieldSpec getField(EField fieldId)
+	{
+		if((fieldId.index() < 0) || (fieldId.index() >= fields.length))
+		{
+			return FieldSpec.UNDEFINED;
+		}
+		return fields[fieldId.index()];
+	}
+}
@@ -2,12 +2,13 @@ package com.mlf.tools.iso8583;
 
 import java.io.FileInputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 import com.mlf.tools.EAlign;
 import com.mlf.tools.FileTools;
-import com.mlf.tools.StrUtils;
+import com.mlf.tools.Log;
 
 /**
  * Procesador de datos 8583
@@ -15,9 +16,19 @@ import com.mlf.tools.StrUtils;
  */
 public class Proc8583
 {
-	private static final int FIELDS	= 65;
+	static final int FIELDS	= 130;
+	private static final int MASK_WORDS = (FIELDS - 2)/64 + 1;	// Largo de la máscara de campos, del MTI al campo 128
 
 	private Field8583[] fields;
+	private MessageSpec spec;	// Última configuración compilada de los campos
+	private byte[] inBuf;		// Buffer para los mensajes leídos desde buffers directos
+	private boolean lazy;		// Parseo perezoso: solo se resuelven los límites de los campos
+	Object lease;				// Préstamo del pool en modo de detección de pérdidas
+	volatile int pooled;		// 1 si está devuelto al pool, para detectar las devoluciones repetidas
+	private byte[] wire;		// Mensaje del último parseo, los campos sin modificar se copian desde aquí
+	private final FieldSpec[] wireSpecs = new FieldSpec[FIELDS];	// Configuración con la que se parseó el mensaje
+	private long wirePrimary;		// Mapa de bits del mensaje parseado
+	private long wireSecondary;
 
 	/**
 	 * Constructor
@@ -39,15 +50,36 @@ public class Proc8583
 	}
 
 	/**
-	 * Reset
+	 * Constructor a partir de una configuración compilada, que se comparte sin copiarla
+	 * @param spec Configuración de los campos
+	 */
+	public Proc8583(MessageSpec spec)
+	{
+		super();
+		reset();
+		setSpec(spec);
+	}
+
+	/**
+	 * Reset. Los objetos de campo se reutilizan y conservan sus buffers
 	 */
 	public void reset()
 	{
-		fields = new Field8583[FIELDS];
+		if(fields == null)
+		{
+			fields = new Field8583[FIELDS];
+			for(int i = 0; i < FIELDS; ++i)
+			{
+				fields[i] = new Field8583();
+			}
+			return;
+		}
 		for(int i = 0; i < FIELDS; ++i)
 		{
-			fields[i] = new Field8583();
+			fields[i].reset();
 		}
+		spec = null;
+		wire = null;
 	}
 	
 	/**
@@ -57,77 +89,653 @@ public class Proc8583
 	public void set(Proc8583 src)
 	{
 		reset();
+		lazy = src.lazy;
 		for(int i = 0; i < FIELDS; ++i)
 		{
 			fields[i].set(src.fields[i]);
 		}
+		spec = src.spec;
+	}
+
+	/**
+	 * Obtener la respuesta a este mensaje en un procesador nuevo (ver deriveResponse(Proc8583, EField...))
+	 * @param echo Campos del requerimiento que se repiten en la respuesta
+	 * @return Procesador con la respuesta, null si el MTI no es de requerimiento
+	 */
+	public Proc8583 deriveResponse(EField... echo)
+	{
+		return deriveResponse(new Proc8583(getSpec()), echo);
+	}
+
+	/**
+	 * Preparar la respuesta a este mensaje: el MTI pasa a ser el de respuesta (0200 -> 0210, 0400 -> 0410) y los
+	 * campos indicados se repiten referenciando los datos del requerimiento, sin copiarlos. El resto de los campos
+	 * queda sin datos para que se completen con setData. Los datos compartidos son válidos mientras no se reutilice
+	 * este procesador, y al armar la respuesta se copian tal como llegaron en el requerimiento
+	 * @param dest Procesador de destino, por ejemplo obtenido de un pool
+	 * @param echo Campos del requerimiento que se repiten en la respuesta
+	 * @return Procesador de destino, null si el MTI no es de requerimiento
+	 */
+	public Proc8583 deriveResponse(Proc8583 dest, EField... echo)
+	{
+		String mti = fields[1].getData_str();
+		if((mti == null) || (mti.length() != 4) || (mti.charAt(2) < '0') || (mti.charAt(2) > '8') || ((mti.charAt(2) - '0')%2 != 0))
+		{
+			Log.err("MTI " + mti + " is not a request");
+			return null;
+		}
+		dest.clearData();
+		dest.lazy = lazy;
+		dest.fields[1].setData(mti.substring(0, 2) + (char) (mti.charAt(2) + 1) + mti.charAt(3));
+		for(EField fieldId : echo)
+		{
+			int index = fieldId.index();
+			if((index < 0) || (index == 1) || (index == 2) || (index >= FIELDS))
+			{
+				// El MTI cambia y el mapa de bits se arma según los campos con datos
+				continue;
+			}
+			if(dest.fields[index].getSpec() == fields[index].getSpec())
+			{
+				dest.fields[index].share(fields[index]);
+			}
+			else if(fields[index].hasData())
+			{
+				dest.fields[index].setData(fields[index].getData_str());
+			}
+		}
+		if(wire != null)
+		{
+			// Los campos compartidos siguen referenciando el mensaje del requerimiento
+			dest.wire = wire;
+			dest.wirePrimary = wirePrimary;
+			dest.wireSecondary = wireSecondary;
+			System.arraycopy(wireSpecs, 0, dest.wireSpecs, 0, FIELDS);
+		}
+		return dest;
 	}
 
 	/**
 	 * Obtener los datos de los campo desde un mensaje ISO-8583
 	 * @param message Mensaje ISO-8583
-	 * @return Array con los campos del mensaje ISO-8583
+	 * @return Array con los campos del mensaje ISO-8583, vacío si el mensaje tiene errores
 	 */
 	public Field8583[] ParseISO8583(byte[] message)
 	{
-		byte[] rest = Arrays.copyOf(message, message.length);
-		int processLen;
-		boolean[] present = new boolean[FIELDS];
+		return ParseISO8583(Arrays.copyOf(message, message.length), 0, message.length);
+	}
+
+	/**
+	 * Obtener los datos de los campo desde un mensaje ISO-8583 sin copiarlo. Los campos quedan referenciando
+	 * al array de origen, que no debe modificarse mientras se usen los datos de los campos
+	 * @param message Array que contiene el mensaje ISO-8583
+	 * @param offset Posición de inicio del mensaje
+	 * @param len Largo del mensaje
+	 * @return Array con los campos del mensaje ISO-8583, vacío si el mensaje tiene errores
+	 */
+	public Field8583[] ParseISO8583(byte[] message, int offset, int len)
+	{
+		return (parse(message, offset, len) > 0) ? fields : new Field8583[0];
+	}
+
+	/**
+	 * Obtener los datos de los campo desde un mensaje ISO-8583 contenido en un buffer entre su posición y su límite.
+	 * La posición del buffer avanza la cantidad de bytes procesados, y no cambia si el mensaje tiene errores. Si el
+	 * buffer tiene un array accesible los campos lo referencian sin copiarlo, si es directo el mensaje se lee a un
+	 * buffer interno que se reutiliza en cada lectura
+	 * @param buffer Buffer con el mensaje ISO-8583
+	 * @return Array con los campos del mensaje ISO-8583, vacío si el mensaje tiene errores
+	 */
+	public Field8583[] ParseISO8583(ByteBuffer buffer)
+	{
+		int len = buffer.remaining();
+		if(buffer.hasArray())
+		{
+			int used = parse(buffer.array(), buffer.arrayOffset() + buffer.position(), len);
+			if(used == 0)
+			{
+				return new Field8583[0];
+			}
+			buffer.position(buffer.position() + used);
+			return fields;
+		}
+		byte[] data = inputBuffer(len, 0);
+		int start = buffer.position();
+		buffer.get(data, 0, len);
+		int used = parse(data, 0, len);
+		buffer.position(start + used);
+		return (used > 0) ? fields : new Field8583[0];
+	}
+
+	/**
+	 * Obtener solo los campos indicados de un mensaje ISO-8583
+	 * @param message Mensaje ISO-8583
+	 * @param fieldMask Máscara de campos a obtener (ver mask)
+	 * @return Array con los campos pedidos que están presentes en el mensaje
+	 */
+	public Field8583[] ParseISO8583(byte[] message, long[] fieldMask)
+	{
+		return ParseISO8583(message, 0, message.length, fieldMask);
+	}
+
+	/**
+	 * Obtener solo los campos indicados de un mensaje ISO-8583 sin copiarlo. Los campos no pedidos se saltean
+	 * leyendo solo su prefijo de largo, sin copiar ni validar sus datos, y el recorrido termina en el último
+	 * campo pedido. Los campos pedidos se parsean en modo perezoso y quedan referenciando al array de origen
+	 * @param message Array que contiene el mensaje ISO-8583
+	 * @param offset Posición de inicio del mensaje
+	 * @param len Largo del mensaje
+	 * @param fieldMask Máscara de campos a obtener (ver mask)
+	 * @return Array con los campos pedidos que están presentes en el mensaje
+	 */
+	public Field8583[] ParseISO8583(byte[] message, int offset, int len, long[] fieldMask)
+	{
+		clearData();
+		int end = offset + len;
+		int pos = offset;
+		int used;
+		int count = 0;
 		
 		// TPDU
 		if(fields[0].getMaxLen() > 0)
 		{
-			processLen = fields[0].parseField(rest);
-			present[0] = processLen > 0;
-			rest = StrUtils.sub(rest, processLen);
+			used = fields[0].skipField(message, pos, end);
+			if(used == 0)
+			{
+				Log.err("Invalid TPDU");
+				return new Field8583[0];
+			}
+			pos += used;
 		}
 		// MTI
-		processLen = fields[1].parseField(rest);
-		present[1] = processLen > 0;
-		rest = StrUtils.sub(rest, processLen);
+		if(isMasked(fieldMask, 0))
+		{
+			used = fields[1].parseField(message, pos, end, true);
+			count += (used > 0) ? 1 : 0;
+		}
+		else
+		{
+			used = fields[1].skipField(message, pos, end);
+		}
+		if(used == 0)
+		{
+			Log.err("Invalid MTI");
+			return new Field8583[0];
+		}
+		pos += used;
+		// Bitmap, siempre hace falta para recorrer el mensaje
+		used = parseBitmap(message, pos, end, true);
+		if(used == 0)
+		{
+			Log.err("Invalid bitmap");
+			return new Field8583[0];
+		}
+		count += isMasked(fieldMask, 1) ? 1 : 0;
+		pos += used;
+		
+		// Último campo pedido, no hace falta recorrer más allá
+		int last = lastMasked(fieldMask);
+		long primary = fields[2].getBitmapWord(0) & ~Long.MIN_VALUE;
+		long secondary = fields[2].getBitmapWord(1);
+		for(int word = 0; word < 2; ++word)
+		{
+			long bits = (word == 0) ? primary : secondary;
+			while(bits != 0)
+			{
+				int bit = Long.numberOfLeadingZeros(bits);
+				bits &= ~(Long.MIN_VALUE >>> bit);
+				int number = word*64 + bit + 1;
+				if(number > last)
+				{
+					word = 2;
+					break;
+				}
+				int i = number + 1;
+				if((i >= FIELDS) || (fields[i].getFieldNumber() != number))
+				{
+					Log.err("Bit " + number + " error. Field not configured");
+					clearData();
+					return new Field8583[0];
+				}
+				if(isMasked(fieldMask, number))
+				{
+					used = fields[i].parseField(message, pos, end, true);
+					count += (used > 0) ? 1 : 0;
+				}
+				else
+				{
+					used = fields[i].skipField(message, pos, end);
+				}
+				if(used == 0)
+				{
+					Log.err("Bit " + number + " error. Can't determine field length");
+					clearData();
+					return new Field8583[0];
+				}
+				pos += used;
+			}
+		}
+		if(!isMasked(fieldMask, 1))
+		{
+			fields[2].clearData();
+		}
+		setWire(message);
+		Field8583[] out = new Field8583[count];
+		count = 0;
+		for(int i = 1; (i < FIELDS) && (count < out.length); ++i)
+		{
+			if(fields[i].hasData())
+			{
+				out[count++] = fields[i];
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Obtener la máscara de campos para el parseo selectivo. El campo n corresponde al bit n%64 de la posición
+	 * n/64 del array, del MTI (0) al campo 128
+	 * @param fieldIds Campos a incluir en la máscara
+	 * @return Máscara de campos
+	 */
+	public static long[] mask(EField... fieldIds)
+	{
+		long[] mask = new long[MASK_WORDS];
+		for(EField fieldId : fieldIds)
+		{
+			int number = fieldId.number();
+			if((number >= 0) && (number < FIELDS - 1))
+			{
+				mask[number >>> 6] |= (1L << (number & 63));
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Saber si un campo está incluido en la máscara
+	 * @param mask Máscara de campos
+	 * @param number Número de campo
+	 * @return true/false
+	 */
+	private static boolean isMasked(long[] mask, int number)
+	{
+		return ((number >>> 6) < mask.length) && ((mask[number >>> 6] & (1L << (number & 63))) != 0);
+	}
+
+	/**
+	 * Obtener el último campo incluido en la máscara
+	 * @param mask Máscara de campos
+	 * @return Número del último campo, -1 si la máscara está vacía
+	 */
+	private static int lastMasked(long[] mask)
+	{
+		for(int word = mask.length - 1; word >= 0; --word)
+		{
+			if(mask[word] != 0)
+			{
+				return word*64 + 63 - Long.numberOfLeadingZeros(mask[word]);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Obtener los datos de los campos desde un mensaje ISO-8583. Antes se borran los datos de todos los campos, así
+	 * ninguno queda referenciando al mensaje anterior
+	 * @param message Array que contiene el mensaje ISO-8583
+	 * @param offset Posición de inicio del mensaje
+	 * @param len Largo del mensaje
+	 * @return Cantidad de bytes procesados, 0 si hay error
+	 */
+	private int parse(byte[] message, int offset, int len)
+	{
+		clearData();
+		int end = offset + len;
+		int pos = offset;
+		int used;
+		
+		// TPDU
+		if(fields[0].getMaxLen() > 0)
+		{
+			used = fields[0].parseField(message, pos, end, lazy);
+			if(used == 0)
+			{
+				return invalid("Invalid TPDU");
+			}
+			pos += used;
+		}
+		// MTI
+		used = fields[1].parseField(message, pos, end, lazy);
+		if(used == 0)
+		{
+			return invalid("Invalid MTI");
+		}
+		pos += used;
 		
 		// Bitmap
-		processLen = fields[2].parseField(rest);
-		present[2] = processLen > 0;
-		rest = StrUtils.sub(rest, processLen);
+		used = parseBitmap(message, pos, end, lazy);
+		if(used == 0)
+		{
+			return invalid("Invalid bitmap");
+		}
+		pos += used;
 		
-		// Recorro desde el bit 2 (pan) hasta el 63
-		for(int i = 3; i < FIELDS; ++i)
+		// Recorro los bits encendidos desde el 2 (pan) hasta el 128, el bit 1 indica el mapa secundario. El recorrido
+		// termina en el primer campo con error, los siguientes no se pueden ubicar
+		long primary = fields[2].getBitmapWord(0) & ~Long.MIN_VALUE;
+		long secondary = fields[2].getBitmapWord(1);
+		for(int word = 0; word < 2; ++word)
 		{
-			present[i] = fields[2].getBit(fields[i].getFieldNumber());
+			long bits = (word == 0) ? primary : secondary;
+			while(bits != 0)
+			{
+				int bit = Long.numberOfLeadingZeros(bits);
+				bits &= ~(Long.MIN_VALUE >>> bit);
+				int number = word*64 + bit + 1;
+				if((number + 1 >= FIELDS) || (fields[number + 1].getFieldNumber() != number))
+				{
+					return invalid("Bit " + number + " error. Field not configured");
+				}
+				used = fields[number + 1].parseField(message, pos, end, lazy);
+				if(used == 0)
+				{
+					return invalid("Bit " + number + " error. Can't determine field length");
+				}
+				pos += used;
+			}
 		}
-		for(int i = 3; i < FIELDS; ++i)
+		setWire(message);
+		return pos - offset;
+	}
+
+	/**
+	 * Descartar un mensaje con error
+	 * @param error Descripción del error
+	 * @return 0
+	 */
+	private int invalid(String error)
+	{
+		Log.err(error);
+		clearData();
+		return 0;
+	}
+
+	/**
+	 * Parsear el mapa de bits, incluyendo el secundario si el bit 1 está encendido
+	 * @param message Array que contiene el mensaje ISO-8583
+	 * @param offset Posición de inicio del mapa de bits
+	 * @param end Posición siguiente al último byte del mensaje
+	 * @param lazy No logear ni decodificar los datos
+	 * @return Cantidad de bytes usados, 0 si hay error
+	 */
+	int parseBitmap(byte[] message, int offset, int end, boolean lazy)
+	{
+		Field8583 bitmap = fields[2];
+		if((offset < end) && ((message[offset] & 0x80) != 0) && bitmap.getSpec().isValid())
+		{
+			int len = bitmap.getMaxLen()*2;
+			if(end - offset < len)
+			{
+				Log.err("Bit 1 error. Field to short " + (end - offset));
+				return 0;
+			}
+			return bitmap.setParsed(message, offset, 0, len, len, lazy);
+		}
+		return bitmap.parseField(message, offset, end, lazy);
+	}
+
+	/**
+	 * Obtener el buffer interno de lectura con lugar para al menos len bytes. Si hay que agrandarlo se conservan
+	 * los primeros keep bytes y los campos que referenciaban el buffer anterior pasan a referenciar el nuevo
+	 * @param len Bytes necesarios
+	 * @param keep Bytes a conservar
+	 * @return Buffer de lectura
+	 */
+	byte[] inputBuffer(int len, int keep)
+	{
+		if((inBuf == null) || (inBuf.length < len))
 		{
-			if(present[i])
+			byte[] old = inBuf;
+			inBuf = new byte[(old == null) ? len : Math.max(len, old.length*2)];
+			if(old != null)
 			{
-				processLen = fields[i].parseField(rest);
-				rest = StrUtils.sub(rest, processLen);
+				System.arraycopy(old, 0, inBuf, 0, keep);
+				for(int i = 0; i < FIELDS; ++i)
+				{
+					fields[i].rebase(old, inBuf);
+				}
 			}
 		}
-		return fields;
+		return inBuf;
+	}
+
+	/**
+	 * Obtener objeto de campo según su posición
+	 * @param index Posición del campo (número de campo + 1)
+	 * @return Objeto de campo
+	 */
+	Field8583 fieldAt(int index)
+	{
+		return fields[index];
 	}
 
 	/**
-	 * Construir el mensaje ISO-8583 a partir de los datos de los campos
+	 * Establecer el modo de parseo perezoso. En este modo el parseo solo resuelve los límites de los campos a partir
+	 * del mapa de bits y de los prefijos de largo, sin logear ni decodificar los datos, que se decodifican
+	 * recién cuando se piden
+	 * @param lazy Activar o no el parseo perezoso
+	 * @return Instancia
+	 */
+	public Proc8583 setLazyParse(boolean lazy)
+	{
+		this.lazy = lazy;
+		return this;
+	}
+
+	/**
+	 * Saber si está activo el modo de parseo perezoso
+	 * @return true/false
+	 */
+	public boolean isLazyParse()
+	{
+		return lazy;
+	}
+
+	/**
+	 * Construir el mensaje ISO-8583 a partir de los datos de los campos. Si el procesador contiene un mensaje
+	 * parseado, los campos que no se modificaron desde entonces se copian tal como llegaron y solo se arman los
+	 * modificados
 	 * @return Mensaje ISO-8583
 	 */
 	public byte[] BuilISO8583()
 	{
-		//	Armar mapa de bits
-		fields[2].setData(StrUtils.toHexString(new byte[8]));
+		byte[] message = new byte[getBuildLen()];
+		build(ByteBuffer.wrap(message));
+		return message;
+	}
+
+	/**
+	 * Construir el mensaje ISO-8583 escribiéndolo directamente en un array a partir de la posición indicada.
+	 * Si el mensaje no entra en el espacio restante no se escribe nada
+	 * @param dest Array de destino
+	 * @param offset Posición de inicio del mensaje
+	 * @return Cantidad de bytes escritos, 0 si no hay lugar en el array
+	 */
+	public int BuilISO8583(byte[] dest, int offset)
+	{
+		return BuilISO8583(ByteBuffer.wrap(dest, offset, dest.length - offset));
+	}
+
+	/**
+	 * Construir el mensaje ISO-8583 escribiéndolo directamente en la posición actual del buffer, que avanza
+	 * la cantidad de bytes escritos. Si el mensaje no entra en el espacio restante no se escribe nada
+	 * @param out Buffer de salida (heap o directo)
+	 * @return Cantidad de bytes escritos, 0 si no hay lugar en el buffer
+	 */
+	public int BuilISO8583(ByteBuffer out)
+	{
+		int size = getBuildLen();
+		if(out.remaining() < size)
+		{
+			Log.err("Buffer to short " + out.remaining() + ", message len " + size);
+			return 0;
+		}
+		build(out);
+		return size;
+	}
+
+	/**
+	 * Obtener el largo exacto del mensaje ISO-8583 armado con los datos actuales de los campos
+	 * @return Largo del mensaje en bytes
+	 */
+	public int getBuildLen()
+	{
+		buildBitmap();
+		int size = 0;
+		for(int i = 0; i < FIELDS; ++i)
+		{
+			size += fields[i].getBuildLen();
+		}
+		return size;
+	}
+
+	/**
+	 * Obtener la posición de los datos de un campo dentro del mensaje armado con los datos actuales de los campos
+	 * @param fieldId ID del campo
+	 * @return Posición de los datos desde el inicio del mensaje, -1 si el campo no tiene datos
+	 */
+	public int getBuildOffset(EField fieldId)
+	{
+		int index = fieldId.index();
+		if((index < 0) || (index >= FIELDS) || (fields[index].getFieldId() != fieldId) || !fields[index].hasData())
+		{
+			return -1;
+		}
+		buildBitmap();
+		int offset = 0;
+		for(int i = 0; i < index; ++i)
+		{
+			offset += fields[i].getBuildLen();
+		}
+		return offset + fields[index].getSpec().getLenSize();
+	}
+
+	/**
+	 * Obtener la posición de los datos de un campo dentro del mensaje armado con los datos actuales de los campos
+	 * @param fieldNumber Número del campo
+	 * @return Posición de los datos desde el inicio del mensaje, -1 si el campo no tiene datos
+	 */
+	public int getBuildOffset(int fieldNumber)
+	{
+		return getBuildOffset(EField.fromNumber(fieldNumber));
+	}
+
+	/**
+	 * Escribir los campos en el buffer, que debe tener lugar para el mensaje completo
+	 * @param out Buffer de salida
+	 */
+	private void build(ByteBuffer out)
+	{
+		byte[] src = wire;
+		int spanStart = 0;		// Campos sin modificar consecutivos en el mensaje original
+		int spanEnd = 0;
+		for(int i = 0; i < FIELDS; ++i)
+		{
+			Field8583 field = fields[i];
+			if((src != null) && isClean(i, src))
+			{
+				// Sin modificar desde el parseo, se copia del mensaje original junto con los campos contiguos
+				int start = field.getRawOffset() - field.getSpec().getLenSize();
+				int end = field.getRawOffset() + field.getRawLen();
+				if(start != spanEnd)
+				{
+					out.put(src, spanStart, spanEnd - spanStart);
+					spanStart = start;
+				}
+				spanEnd = end;
+				field.logField(src, start, end - start);
+				continue;
+			}
+			if(spanEnd > spanStart)
+			{
+				out.put(src, spanStart, spanEnd - spanStart);
+				spanStart = spanEnd;
+			}
+			field.buildField(out);
+		}
+		if(spanEnd > spanStart)
+		{
+			out.put(src, spanStart, spanEnd - spanStart);
+		}
+	}
+
+	/**
+	 * Saber si un campo conserva los datos y la configuración del último mensaje parseado. Los campos modificados
+	 * dejan de referenciar al mensaje, y los que quedaron de un mensaje anterior no están en el mapa de bits parseado
+	 * @param index Posición del campo
+	 * @param src Mensaje parseado
+	 * @return true/false
+	 */
+	private boolean isClean(int index, byte[] src)
+	{
+		Field8583 field = fields[index];
+		if((index == 2) || !field.isView(src) || (field.getSpec() != wireSpecs[index]) || !field.hasData())
+		{
+			// El mapa de bits se arma de nuevo según los campos con datos
+			return false;
+		}
+		int number = index - 1;
+		if(number < 1)
+		{
+			return true;
+		}
+		long bits = (number <= 64) ? wirePrimary : wireSecondary;
+		return (bits & (Long.MIN_VALUE >>> ((number - 1) & 63))) != 0;
+	}
+
+	/**
+	 * Recordar el mensaje parseado para copiar desde él los campos que no se modifiquen al armar el mensaje
+	 * @param message Array que contiene el mensaje
+	 */
+	void setWire(byte[] message)
+	{
+		wire = message;
+		for(int i = 0; i < FIELDS; ++i)
+		{
+			wireSpecs[i] = fields[i].getSpec();
+		}
+		wirePrimary = fields[2].getBitmapWord(0);
+		wireSecondary = fields[2].getBitmapWord(1);
+	}
+
+	/**
+	 * Armar el mapa de bits según los campos con datos
+	 */
+	private void buildBitmap()
+	{
+		long primary = 0;
+		long secondary = 0;
 		for(int i = 3; i <  FIELDS; ++i)
 		{
 			if(fields[i].getLen() > 0)
 			{
-				fields[2].setBit(fields[i].getFieldNumber());
+				int number = fields[i].getFieldNumber();
+				if((number > 1) && (number <= 64))
+				{
+					primary |= Long.MIN_VALUE >>> (number - 1);
+				}
+				else if((number > 64) && (number <= 128))
+				{
+					secondary |= Long.MIN_VALUE >>> (number - 65);
+				}
 			}
 		}
-		byte[] message = new byte[0];
-		for(int i = 0; i < FIELDS; ++i)
+		if(secondary != 0)
 		{
-			message = StrUtils.concatenate(message, fields[i].buildField());
+			primary |= Long.MIN_VALUE;
 		}
-		return message;
+		fields[2].setBitmap(primary, secondary);
 	}
 
 	@Override
@@ -143,12 +751,12 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer configuracin
-	 * @param fieldId Campo segn el enum EField
+	 * Establecer configuración
+	 * @param fieldId Campo según el enum EField
 	 * @param dataType Tipo de datos
-	 * @param align Alineacin
+	 * @param align Alineación
 	 * @param lenType Tipo de largo
-	 * @param maxLen Mximo largo
+	 * @param maxLen Máximo largo
 	 * @param fill Caracter de relleno
 	 * @return Instancia
 	 */
@@ -158,17 +766,18 @@ public class Proc8583
 		if(field != null)
 		{
 			field.setConfig(fieldId, dataType, align, lenType, maxLen, fill);	
+			spec = null;
 		}
 		return this;
 	}
 
 	/**
-	 * Establecer configuracin de un campo
-	 * @param fieldNumber Campo (1 a 63) para los datos, 0 para el MTI, -1 para el TPDU 
+	 * Establecer configuración de un campo
+	 * @param fieldNumber Campo (1 a 128) para los datos, 0 para el MTI, -1 para el TPDU 
 	 * @param dataType Tipo de datos
-	 * @param align Alineacin
+	 * @param align Alineación
 	 * @param lenType Tipo de largo
-	 * @param maxLen Mximo largo
+	 * @param maxLen Máximo largo
 	 * @param fill Caracter de relleno
 	 * @return Instancia
 	 */
@@ -178,8 +787,48 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener una cadena con la configuracin de campos
-	 * @return Cadena con la configuracin de campos
+	 * Establecer la configuración de todos los campos a partir de una configuración compilada
+	 * @param spec Configuración de los campos
+	 * @return Instancia
+	 */
+	public Proc8583 setSpec(MessageSpec spec)
+	{
+		for(int i = 0; (i < FIELDS) && (i < spec.size()); ++i)
+		{
+			fields[i].setConfig(spec.get(i));
+		}
+		this.spec = spec;
+		return this;
+	}
+
+	/**
+	 * Obtener la configuración compilada de los campos. Se compila solo si la configuración cambió desde
+	 * la última vez, y puede usarse para crear otros procesadores que la compartan
+	 * @return Configuración de los campos
+	 */
+	public MessageSpec getSpec()
+	{
+		if((spec == null) || !spec.matches(fields))
+		{
+			spec = new MessageSpec(fields);
+		}
+		return spec;
+	}
+
+	/**
+	 * Saber si el procesador conserva la configuración compilada indicada, comparando solo la referencia. Los cambios
+	 * hechos con setConfig, setSpec o loadConfig la descartan
+	 * @param spec Configuración de los campos
+	 * @return true/false
+	 */
+	boolean usesSpec(MessageSpec spec)
+	{
+		return this.spec == spec;
+	}
+
+	/**
+	 * Obtener una cadena con la configuración de campos
+	 * @return Cadena con la configuración de campos
 	 */
 	public String getConfigAsString()
 	{
@@ -200,6 +849,7 @@ public class Proc8583
 		{
 			fields[i].clearData();
 		}
+		wire = null;
 	}
 	
 	/**
@@ -208,7 +858,7 @@ public class Proc8583
 	 * @param data Datos
 	 * @return Instancia
 	 */
-	/*public Proc8583 setData(EField fieldId, byte[] data)
+	public Proc8583 setData(EField fieldId, byte[] data)
 	{
 		Field8583 field = getField(fieldId);
 		if(field != null)
@@ -216,18 +866,18 @@ public class Proc8583
 			field.setData(data);
 		}
 		return this;
-	}*/
+	}
 
 	/**
 	 * Establecer los datos de un campo
-	 * @param fieldNumber Nmero de campo
+	 * @param fieldNumber Número de campo
 	 * @param data Datos
 	 * @return Instancia
 	 */
-	/*public Proc8583 setData(int fieldNumber, byte[] data)
+	public Proc8583 setData(int fieldNumber, byte[] data)
 	{
 		return setData(EField.fromNumber(fieldNumber), data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos de un campo
@@ -236,7 +886,7 @@ public class Proc8583
 	 * @param len Longitud de datos
 	 * @return Instancia
 	 */
-	/*public Proc8583 setData(EField fieldId, byte[] data, int len)
+	public Proc8583 setData(EField fieldId, byte[] data, int len)
 	{
 		Field8583 field = getField(fieldId);
 		if(field != null)
@@ -244,19 +894,50 @@ public class Proc8583
 			field.setData(data, len);
 		}
 		return this;
-	}*/
+	}
 
 	/**
 	 * Establecer los datos de un campo
-	 * @param fieldNumber Nmero del campo
+	 * @param fieldNumber Número del campo
 	 * @param data Datos
 	 * @param len Longitud de datos
 	 * @return Instancia
 	 */
-	/*public Proc8583 setData(int fieldNumber, byte[] data, int len)
+	public Proc8583 setData(int fieldNumber, byte[] data, int len)
 	{
 		return setData(EField.fromNumber(fieldNumber), data, len);
-	}*/
+	}
+
+	/**
+	 * Establecer los datos de un campo desde un rango de un array, sin pasar por una cadena
+	 * @param fieldId Id del campo
+	 * @param data Array con los datos
+	 * @param offset Posición de los datos
+	 * @param len Bytes de datos
+	 * @return Instancia
+	 */
+	public Proc8583 setData(EField fieldId, byte[] data, int offset, int len)
+	{
+		Field8583 field = getField(fieldId);
+		if(field != null)
+		{
+			field.setData(data, offset, len);
+		}
+		return this;
+	}
+
+	/**
+	 * Establecer los datos de un campo desde un rango de un array, sin pasar por una cadena
+	 * @param fieldNumber Número del campo
+	 * @param data Array con los datos
+	 * @param offset Posición de los datos
+	 * @param len Bytes de datos
+	 * @return Instancia
+	 */
+	public Proc8583 setData(int fieldNumber, byte[] data, int offset, int len)
+	{
+		return setData(EField.fromNumber(fieldNumber), data, offset, len);
+	}
 
 	/**
 	 * Establecer los datos de un campo
@@ -276,7 +957,7 @@ public class Proc8583
 
 	/**
 	 * Establecer los datos de un campo
-	 * @param fieldNumber Nmero del campo
+	 * @param fieldNumber Número del campo
 	 * @param data Datos
 	 * @return Instancia
 	 */
@@ -286,7 +967,81 @@ public class Proc8583
 	}
 
 	/**
-	 * Guardar la configuracin a un archivo
+	 * Establecer un valor numérico en un campo, sin pasar por una cadena en los tipos NUMERIC y BCD
+	 * @param fieldId Id del campo
+	 * @param value Valor
+	 * @return Instancia
+	 */
+	public Proc8583 setLong(EField fieldId, long value)
+	{
+		Field8583 field = getField(fieldId);
+		if(field != null)
+		{
+			field.setLong(value);
+		}
+		return this;
+	}
+
+	/**
+	 * Establecer un valor numérico en un campo, sin pasar por una cadena en los tipos NUMERIC y BCD
+	 * @param fieldNumber Número del campo
+	 * @param value Valor
+	 * @return Instancia
+	 */
+	public Proc8583 setLong(int fieldNumber, long value)
+	{
+		return setLong(EField.fromNumber(fieldNumber), value);
+	}
+
+	/**
+	 * Establecer un valor numérico en un campo, sin pasar por una cadena en los tipos NUMERIC y BCD
+	 * @param fieldId Id del campo
+	 * @param value Valor
+	 * @return Instancia
+	 */
+	public Proc8583 setInt(EField fieldId, int value)
+	{
+		return setLong(fieldId, value);
+	}
+
+	/**
+	 * Establecer un valor numérico en un campo, sin pasar por una cadena en los tipos NUMERIC y BCD
+	 * @param fieldNumber Número del campo
+	 * @param value Valor
+	 * @return Instancia
+	 */
+	public Proc8583 setInt(int fieldNumber, int value)
+	{
+		return setLong(EField.fromNumber(fieldNumber), value);
+	}
+
+	/**
+	 * Obtener el valor numérico de un campo, sin pasar por una cadena en los tipos NUMERIC y BCD
+	 * @param fieldId Id del campo
+	 * @return Valor del campo, 0 si no tiene datos o no es numérico
+	 */
+	public long getLong(EField fieldId)
+	{
+		Field8583 field = getField(fieldId);
+		if(field != null)
+		{
+			return field.getLong();
+		}
+		return 0;
+	}
+
+	/**
+	 * Obtener el valor numérico de un campo, sin pasar por una cadena en los tipos NUMERIC y BCD
+	 * @param fieldNumber Número del campo
+	 * @return Valor del campo, 0 si no tiene datos o no es numérico
+	 */
+	public long getLong(int fieldNumber)
+	{
+		return getLong(EField.fromNumber(fieldNumber));
+	}
+
+	/**
+	 * Guardar la configuración a un archivo
 	 * @param os Flujo de salida
 	 */
 	public void saveConfig(OutputStream os)
@@ -300,17 +1055,41 @@ public class Proc8583
 	}
 
 	/**
-	 * Cargar configuracin desde archivo
+	 * Cargar configuración desde archivo
 	 * @param is Flujo de entrada de archivo
 	 */
 	public void loadConfig(FileInputStream is)
 	{
 		ArrayList<String> lines = FileTools.readLines(is, true);
+		spec = null;
 		for(int i = 0; i < FIELDS && i < lines.size(); ++i)
 		{
 			fields[i].setConfig(lines.get(i));
 		}
-		Arrays.sort(fields);
+		// Cada campo queda en la posición que le corresponde según su número
+		Field8583[] placed = new Field8583[FIELDS];
+		ArrayList<Field8583> unused = new ArrayList<>();
+		for(Field8583 field : fields)
+		{
+			int index = field.getFieldId().index();
+			if((index >= 0) && (index < FIELDS) && (placed[index] == null))
+			{
+				placed[index] = field;
+			}
+			else
+			{
+				unused.add(field);
+			}
+		}
+		for(int i = 0; i < FIELDS; ++i)
+		{
+			if(placed[i] == null)
+			{
+				placed[i] = unused.remove(unused.size() - 1);
+				placed[i].reset();
+			}
+		}
+		fields = placed;
 	}
 
 	/**
@@ -330,7 +1109,7 @@ public class Proc8583
 	
 	/**
 	 * Determinar si el campo tiene datos
-	 * @param fieldNumber Nmero de campo
+	 * @param fieldNumber Número de campo
 	 * @return true/false
 	 */
 	public boolean hasData(int fieldNumber)
@@ -354,7 +1133,7 @@ public class Proc8583
 
 	/**
 	 * Obtener objeto de campo
-	 * @param fieldNumber Nmero del campo
+	 * @param fieldNumber Número del campo
 	 * @return Objeto de campo
 	 */
 	public Field8583 getField(int fieldNumber)
@@ -379,7 +1158,7 @@ public class Proc8583
 
 	/**
 	 * Obtener una cadena con los datos del campo
-	 * @param fieldNumber Nmero del campo
+	 * @param fieldNumber Número del campo
 	 * @return Cadena con los datos del campo
 	 */
 	public String getData_str(int fieldNumber)
@@ -404,7 +1183,7 @@ public class Proc8583
 
 	/**
 	 * Obtener los datos del campo
-	 * @param fieldNumber Nmero del campo
+	 * @param fieldNumber Número del campo
 	 * @return Datos del campo
 	 */
 	public byte[] getData_raw(int fieldNumber)
@@ -412,7 +1191,7 @@ public class Proc8583
 		return getData_raw(EField.fromNumber(fieldNumber));
 	}
 	
-	//----- Seteo de bits por definicin ----------------------------------------------------------
+	//----- Seteo de bits por definición ----------------------------------------------------------
 	
 	/**
 	 * Establecer el TPDU del mensaje
@@ -429,10 +1208,10 @@ public class Proc8583
 	 * @param tpdu TPDU
 	 * @return Instancia
 	 */
-	/*public Proc8583 setTPDU(byte[] tpdu)
+	public Proc8583 setTPDU(byte[] tpdu)
 	{
 		return setData(EField.TPDU, tpdu);
-	}*/
+	}
 
 	/**
 	 * Obtener el TPDU del mensaje
@@ -448,10 +1227,10 @@ public class Proc8583
 	 * @param mti MTI (Tipo de mensaje)
 	 * @return Instancia
 	 */
-	/*public Proc8583 setMTI(byte[] mti)
+	public Proc8583 setMTI(byte[] mti)
 	{
 		return setData(EField.MTI, mti);
-	}*/
+	}
 
 	/**
 	 * Establecer el MTI (Tipo de mensaje)
@@ -492,8 +1271,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer el cdigo de proceso
-	 * @param prcode Cdigo de proceso
+	 * Establecer el código de proceso
+	 * @param prcode Código de proceso
 	 * @return Instancia
 	 */
 	public Proc8583 setPRCode(String prcode)
@@ -502,8 +1281,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener el cdigo de proceso
-	 * @return Cdigo de proceso
+	 * Obtener el código de proceso
+	 * @return Código de proceso
 	 */
 	public byte[] getPRCode()
 	{
@@ -527,7 +1306,7 @@ public class Proc8583
 	 */
 	public Proc8583 setAmount(double amount)
 	{
-		return setData(EField.AMOUNT_TRX, Long.toString(Math.round(amount*100)));
+		return setLong(EField.AMOUNT_TRX, Math.round(amount*100));
 	}
 	
 	/**
@@ -540,8 +1319,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer la fecha y hora de transmisin 
-	 * @param datetime Fecha y hora de transmisin
+	 * Establecer la fecha y hora de transmisión 
+	 * @param datetime Fecha y hora de transmisión
 	 * @return Instancia
 	 */
 	public Proc8583 setDateTime(String datetime)
@@ -550,8 +1329,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener la fecha y hora de transmisin 
-	 * @return Fecha y hora de transmisin
+	 * Obtener la fecha y hora de transmisión 
+	 * @return Fecha y hora de transmisión
 	 */
 	public byte[] getDateTime()
 	{
@@ -559,8 +1338,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer el nmero de seguimiento 
-	 * @param traceNumber Nmero de seguimiento
+	 * Establecer el número de seguimiento 
+	 * @param traceNumber Número de seguimiento
 	 * @return Instancia
 	 */
 	public Proc8583 setTraceNumber(String traceNumber)
@@ -569,8 +1348,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener el nmero de seguimiento 
-	 * @return Nmero de seguimiento
+	 * Obtener el número de seguimiento 
+	 * @return Número de seguimiento
 	 */
 	public byte[] getTraceNumber()
 	{
@@ -616,8 +1395,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer la fecha de expiracin de la tarjeta
-	 * @param date Fecha de expiracin de la tarjeta
+	 * Establecer la fecha de expiración de la tarjeta
+	 * @param date Fecha de expiración de la tarjeta
 	 * @return Instancia
 	 */
 	public Proc8583 setExpirationDate(String date)
@@ -626,8 +1405,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener la fecha de expiracin de la tarjeta
-	 * @return Fecha de expiracin de la tarjeta
+	 * Obtener la fecha de expiración de la tarjeta
+	 * @return Fecha de expiración de la tarjeta
 	 */
 	public byte[] getExpirationDate()
 	{
@@ -635,8 +1414,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer la fecha de liquidacin
-	 * @param date Fecha de liquidacin
+	 * Establecer la fecha de liquidación
+	 * @param date Fecha de liquidación
 	 * @return Instancia
 	 */
 	public Proc8583 setSettlementDate(String date)
@@ -645,8 +1424,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener la fecha de liquidacin
-	 * @return Fecha de liquidacin
+	 * Obtener la fecha de liquidación
+	 * @return Fecha de liquidación
 	 */
 	public byte[] getSettlementDate()
 	{
@@ -673,8 +1452,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer el cdigo de pas
-	 * @param code Cdigo de pas
+	 * Establecer el código de país
+	 * @param code Código de país
 	 * @return Instancia
 	 */
 	public Proc8583 setCountryCode(String code)
@@ -683,8 +1462,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener el cdigo de pas
-	 * @return Cdigo de pas
+	 * Obtener el código de país
+	 * @return Código de país
 	 */
 	public byte[] getCountryCode()
 	{
@@ -711,8 +1490,8 @@ public class Proc8583
 	}
 	
 	/**
-	 * Establecer el nmero de PAN de la aplicacin / Nmero de secuencia de la tarjeta
-	 * @param value Nmero de PAN de la aplicacin / Nmero de secuencia de la tarjeta
+	 * Establecer el número de PAN de la aplicación / Número de secuencia de la tarjeta
+	 * @param value Número de PAN de la aplicación / Número de secuencia de la tarjeta
 	 * @return Instancia
 	 */
 	public Proc8583 setCardSecuenceNumber(String value)
@@ -721,8 +1500,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener el nmero de PAN de la aplicacin / Nmero de secuencia de la tarjeta 
-	 * @return Nmero de PAN de la aplicacin
+	 * Obtener el número de PAN de la aplicación / Número de secuencia de la tarjeta 
+	 * @return Número de PAN de la aplicación
 	 */
 	public byte[] getCardSecuenceNumber()
 	{
@@ -749,8 +1528,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer el cdigo de condicin del POS
-	 * @param code Cdigo de condicin del POS
+	 * Establecer el código de condición del POS
+	 * @param code Código de condición del POS
 	 * @return Instancia
 	 */
 	public Proc8583 setPOSConditionCode(String code)
@@ -759,7 +1538,7 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener el cdigo de condicin del POS
+	 * Obtener el código de condición del POS
 	 * @return code
 	 */
 	public byte[] getPOSConditionCode()
@@ -768,8 +1547,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer el nmero de cuenta primaria extendida / CVV  
-	 * @param value Nmero de cuenta primaria extendida / CVV
+	 * Establecer el número de cuenta primaria extendida / CVV  
+	 * @param value Número de cuenta primaria extendida / CVV
 	 * @return Instancia
 	 */
 	public Proc8583 setCVV(String value)
@@ -778,8 +1557,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener el nmero de cuenta primaria extendida / CVV  
-	 * @return Nmero de cuenta primaria extendida / CVV
+	 * Obtener el número de cuenta primaria extendida / CVV  
+	 * @return Número de cuenta primaria extendida / CVV
 	 */
 	public byte[] getCVV()
 	{
@@ -844,8 +1623,8 @@ public class Proc8583
 	}	
 
 	/**
-	 * Establecer la respuesta de identificacin de autorizacin 
-	 * @param value Respuesta de identificacin de autorizacin
+	 * Establecer la respuesta de identificación de autorización 
+	 * @param value Respuesta de identificación de autorización
 	 * @return Instancia
 	 */
 	public Proc8583 setAuthorizationID(String value)
@@ -854,8 +1633,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener la respuesta de identificacin de autorizacin 
-	 * @return Respuesta de identificacin de autorizacin
+	 * Obtener la respuesta de identificación de autorización 
+	 * @return Respuesta de identificación de autorización
 	 */
 	public byte[] getAuthorizationID()
 	{
@@ -863,8 +1642,8 @@ public class Proc8583
 	}	
 
 	/**
-	 * Establecer el cdigo de respuesta
-	 * @param code Cdigo de respuesta
+	 * Establecer el código de respuesta
+	 * @param code Código de respuesta
 	 * @return Instancia
 	 */
 	public Proc8583 setResponseCode(String code)
@@ -873,8 +1652,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener el cdigo de respuesta
-	 * @return Cdigo de respuesta
+	 * Obtener el código de respuesta
+	 * @return Código de respuesta
 	 */
 	public byte[] getResponseCode()
 	{
@@ -901,8 +1680,8 @@ public class Proc8583
 	}	
 	
 	/**
-	 * Establecer el nmero/cdigo de comercio
-	 * @param id Nmero/cdigo de comercio
+	 * Establecer el número/código de comercio
+	 * @param id Número/código de comercio
 	 * @return Instancia
 	 */
 	public Proc8583 setCommerceCode(String id)
@@ -911,8 +1690,8 @@ public class Proc8583
 	}
 	
 	/**
-	 * Obtener el nmero/cdigo de comercio
-	 * @return Nmero/cdigo de comercio
+	 * Obtener el número/código de comercio
+	 * @return Número/código de comercio
 	 */
 	public byte[] getCommerceCode()
 	{
@@ -943,10 +1722,10 @@ public class Proc8583
 	 * @param data Datos adicionales que llegan en el campo 44
 	 * @return Instancia
 	 */
-	/*public Proc8583 setAdditionalData44(byte[] data)
+	public Proc8583 setAdditionalData44(byte[] data)
 	{
 		return setData(EField.ADDITIONAL_DATA_44, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos adicionales que llegan en el campo 44
@@ -991,10 +1770,10 @@ public class Proc8583
 	 * @param data Datos adicionales del campo 46
 	 * @return Instancia
 	 */
-	/*public Proc8583 setAdditionalData46(byte[] data)
+	public Proc8583 setAdditionalData46(byte[] data)
 	{
 		return setData(EField.ADDITIONAL_DATA_46, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos adicionales del campo 46
@@ -1020,10 +1799,10 @@ public class Proc8583
 	 * @param data Datos adicionales del campo 47
 	 * @return Instancia
 	 */
-	/*public Proc8583 setAdditionalData47(byte[] data)
+	public Proc8583 setAdditionalData47(byte[] data)
 	{
 		return setData(EField.ADDITIONAL_DATA_47, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos adicionales del campo 47
@@ -1050,10 +1829,10 @@ public class Proc8583
 	 * @param data Datos adicionales del campo 48
 	 * @return Instancia
 	 */
-	/*public Proc8583 setAdditionalData48(byte[] data)
+	public Proc8583 setAdditionalData48(byte[] data)
 	{
 		return setData(EField.ADDITIONAL_DATA_48, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos adicionales del campo 48
@@ -1075,8 +1854,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Establecer el cdigo de la moneda de la transaccin
-	 * @param currency Cdigo de la moneda de la transaccin
+	 * Establecer el código de la moneda de la transacción
+	 * @param currency Código de la moneda de la transacción
 	 * @return Instancia
 	 */
 	public Proc8583 setCurrency(String currency)
@@ -1085,8 +1864,8 @@ public class Proc8583
 	}
 
 	/**
-	 * Obtener el cdigo de la moneda de la transaccin
-	 * @return Cdigo de la moneda de la transaccin
+	 * Obtener el código de la moneda de la transacción
+	 * @return Código de la moneda de la transacción
 	 */
 	/*public byte[] getCurrency()
 	{
@@ -1136,10 +1915,10 @@ public class Proc8583
 	 * @param data Datos del campo 55
 	 * @return Instancia
 	 */
-	/*public Proc8583 setDataField55(byte[] data)
+	public Proc8583 setDataField55(byte[] data)
 	{
 		return setData(EField.FIELD_55, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 55
@@ -1165,10 +1944,10 @@ public class Proc8583
 	 * @param data Datos del campo 56
 	 * @return Instancia
 	 */
-	/*public Proc8583 setDataField56(byte[] data)
+	public Proc8583 setDataField56(byte[] data)
 	{
 		return setData(EField.FIELD_56, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 56
@@ -1194,10 +1973,10 @@ public class Proc8583
 	 * @param data Datos del campo 57
 	 * @return Instancia
 	 */
-	/*public Proc8583 setDataField57(byte[] data)
+	public Proc8583 setDataField57(byte[] data)
 	{
 		return setData(EField.FIELD_57, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 57
@@ -1223,10 +2002,10 @@ public class Proc8583
 	 * @param data Datos del campo 58
 	 * @return Instancia
 	 */
-	/*public Proc8583 setDataField58(byte[] data)
+	public Proc8583 setDataField58(byte[] data)
 	{
 		return setData(EField.FIELD_58, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 58
@@ -1252,10 +2031,10 @@ public class Proc8583
 	 * @param data Datos del campo 59
 	 * @return Instancia
 	 */	
-	/*public Proc8583 setDataField59(byte[] data)
+	public Proc8583 setDataField59(byte[] data)
 	{
 		return setData(EField.FIELD_59, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 59
@@ -1281,10 +2060,10 @@ public class Proc8583
 	 * @param data Datos del campo 60
 	 * @return Instancia
 	 */	
-	/*public Proc8583 setDataField60(byte[] data)
+	public Proc8583 setDataField60(byte[] data)
 	{
 		return setData(EField.FIELD_60, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 60
@@ -1310,10 +2089,10 @@ public class Proc8583
 	 * @param data Datos del campo 61
 	 * @return Instancia
 	 */	
-	/*public Proc8583 setDataField61(byte[] data)
+	public Proc8583 setDataField61(byte[] data)
 	{
 		return setData(EField.FIELD_61, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 61
@@ -1339,10 +2118,10 @@ public class Proc8583
 	 * @param data Datos del campo 62
 	 * @return Instancia
 	 */	
-	/*public Proc8583 setDataField62(byte[] data)
+	public Proc8583 setDataField62(byte[] data)
 	{
 		return setData(EField.FIELD_62, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 62
@@ -1368,10 +2147,10 @@ public class Proc8583
 	 * @param data Datos del campo 63
 	 * @return Instancia
 	 */	
-	/*public Proc8583 setDataField63(byte[] data)
+	public Proc8583 setDataField63(byte[] data)
 	{
 		return setData(EField.FIELD_63, data);
-	}*/
+	}
 
 	/**
 	 * Establecer los datos del campo 63
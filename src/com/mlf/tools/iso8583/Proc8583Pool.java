@@ -0,0 +1,247 @@
+package com.mlf.tools.iso8583;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mlf.tools.Log;
+
+/**
+ * Pool de procesadores ISO-8583 que comparten una configuración compilada. Los procesadores devueltos solo borran
+ * los datos de los campos, conservando la configuración y los buffers ya agrandados, de modo que en régimen el
+ * procesamiento de transacciones casi no crea objetos. El pool tiene capacidad acotada: los procesadores que no
+ * entran se descartan. Opcionalmente cada hilo guarda unos pocos procesadores propios para no competir por el pool
+ * compartido, y en modo de depuración se informan los procesadores que se pierden sin devolverlos
+ * @author Mario
+ */
+public final class Proc8583Pool
+{
+	/** Marca de procesador devuelto, se cambia con compareAndSet para que dos devoluciones simultáneas no pasen ambas */
+	private static final AtomicIntegerFieldUpdater<Proc8583> POOLED = AtomicIntegerFieldUpdater.newUpdater(Proc8583.class, "pooled");
+
+	private final MessageSpec spec;						// Configuración de los procesadores
+	private final ArrayBlockingQueue<Proc8583> shared;	// Procesadores libres compartidos
+	private final ThreadLocal<LocalCache> local;		// Procesadores libres de cada hilo o null
+	private final boolean debug;						// Detección de pérdidas
+	private final ReferenceQueue<Proc8583> lost;		// Préstamos de procesadores perdidos
+	private final Set<Lease> leases;					// Préstamos en curso
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong leaks = new AtomicLong();
+
+	/**
+	 * Constructor
+	 * @param spec Configuración de los procesadores
+	 * @param capacity Máxima cantidad de procesadores libres en el pool compartido
+	 */
+	public Proc8583Pool(MessageSpec spec, int capacity)
+	{
+		this(spec, capacity, 0, false);
+	}
+
+	/**
+	 * Constructor
+	 * @param spec Configuración de los procesadores
+	 * @param capacity Máxima cantidad de procesadores libres en el pool compartido
+	 * @param localCapacity Máxima cantidad de procesadores libres por hilo, 0 para no usar caches por hilo
+	 * @param debug Informar los procesadores que se pierden sin devolverlos al pool
+	 */
+	public Proc8583Pool(MessageSpec spec, int capacity, int localCapacity, boolean debug)
+	{
+		super();
+		this.spec = spec;
+		this.shared = new ArrayBlockingQueue<>(Math.max(capacity, 1));
+		this.local = (localCapacity > 0) ? ThreadLocal.withInitial(() -> new LocalCache(localCapacity)) : null;
+		this.debug = debug;
+		this.lost = debug ? new ReferenceQueue<>() : null;
+		this.leases = debug ? ConcurrentHashMap.newKeySet() : null;
+	}
+
+	/**
+	 * Obtener un procesador sin datos, creándolo si el pool está vacío
+	 * @return Procesador
+	 */
+	public Proc8583 acquire()
+	{
+		Proc8583 proc = null;
+		if(local != null)
+		{
+			proc = local.get().poll();
+		}
+		if(proc == null)
+		{
+			proc = shared.poll();
+		}
+		if(proc == null)
+		{
+			proc = new Proc8583(spec);
+			created.incrementAndGet();
+		}
+		proc.pooled = 0;
+		if(debug)
+		{
+			checkLeaks();
+			Lease lease = new Lease(proc, lost);
+			leases.add(lease);
+			proc.lease = lease;
+		}
+		return proc;
+	}
+
+	/**
+	 * Devolver un procesador al pool. Se borran sus datos, el parseo perezoso vuelve a su valor por defecto y no
+	 * debe seguir usándose, tampoco los campos que se obtuvieron de él
+	 * @param proc Procesador
+	 */
+	public void release(Proc8583 proc)
+	{
+		if(proc == null)
+		{
+			return;
+		}
+		if(!POOLED.compareAndSet(proc, 0, 1))
+		{
+			Log.err("Proc8583 released twice");
+			return;
+		}
+		if(debug)
+		{
+			Object lease = proc.lease;
+			if(!(lease instanceof Lease) || !leases.remove(lease))
+			{
+				Log.err("Proc8583 released twice or not acquired from this pool");
+				proc.pooled = 0;
+				return;
+			}
+			((Lease) lease).clear();
+			proc.lease = null;
+		}
+		if(!proc.usesSpec(spec))
+		{
+			// La configuración se cambió, no se puede reutilizar
+			return;
+		}
+		proc.clearData();
+		proc.setLazyParse(false);
+		if((local != null) && local.get().offer(proc))
+		{
+			return;
+		}
+		shared.offer(proc);
+	}
+
+	/**
+	 * Informar los procesadores que se perdieron sin devolverlos al pool. Solo en modo de depuración
+	 * @return Cantidad de procesadores perdidos desde la creación del pool
+	 */
+	public long checkLeaks()
+	{
+		if(debug)
+		{
+			Lease lease;
+			while((lease = (Lease) lost.poll()) != null)
+			{
+				if(leases.remove(lease))
+				{
+					leaks.incrementAndGet();
+					Log.err("Proc8583 leak: instance was not released to the pool. Acquired at:\n" + lease.trace());
+				}
+			}
+		}
+		return leaks.get();
+	}
+
+	/**
+	 * Obtener la cantidad de procesadores prestados y no devueltos. Solo en modo de depuración
+	 * @return Cantidad de procesadores prestados
+	 */
+	public int getLeased()
+	{
+		return debug ? leases.size() : 0;
+	}
+
+	/**
+	 * Obtener la cantidad de procesadores libres en el pool compartido
+	 * @return Cantidad de procesadores libres
+	 */
+	public int getIdle()
+	{
+		return shared.size();
+	}
+
+	/**
+	 * Obtener la cantidad de procesadores creados por el pool
+	 * @return Cantidad de procesadores creados
+	 */
+	public long getCreated()
+	{
+		return created.get();
+	}
+
+	/**
+	 * Obtener la configuración de los procesadores
+	 * @return Configuración
+	 */
+	public MessageSpec getSpec()
+	{
+		return spec;
+	}
+
+	/** Procesadores libres de un hilo */
+	private static final class LocalCache
+	{
+		private final Proc8583[] items;
+		private int count;
+
+		LocalCache(int capacity)
+		{
+			items = new Proc8583[capacity];
+		}
+
+		Proc8583 poll()
+		{
+			if(count == 0)
+			{
+				return null;
+			}
+			Proc8583 proc = items[--count];
+			items[count] = null;
+			return proc;
+		}
+
+		boolean offer(Proc8583 proc)
+		{
+			if(count == items.length)
+			{
+				return false;
+			}
+			items[count++] = proc;
+			return true;
+		}
+	}
+
+	/** Préstamo de un procesador, queda en la cola de perdidos si el procesador se libera sin devolverlo */
+	private static final class Lease extends WeakReference<Proc8583>
+	{
+		private final StackTraceElement[] stack;
+
+		Lease(Proc8583 proc, ReferenceQueue<Proc8583> queue)
+		{
+			super(proc, queue);
+			stack = Thread.currentThread().getStackTrace();
+		}
+
+		String trace()
+		{
+			StringBuilder sb = new StringBuilder();
+			for(int i = 2; i < stack.length; ++i)
+			{
+				sb.append("\tat ").append(stack[i]).append('\n');
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.mlf.tools.iso8583;
+
+import com.mlf.tools.Log;
+
+/**
+ * Mensaje ISO-8583 armado una sola vez a partir de un procesador modelo, con campos variables de largo fijo que
+ * se completan en cada copia. El TPDU, el MTI, el mapa de bits y los campos constantes quedan armados en la
+ * plantilla, de modo que cada mensaje nuevo es una copia del array más la escritura de los campos variables (por
+ * ejemplo 11, 12, 13, 37, 38 y 39 en respuestas o mensajes de red 0800). La plantilla no cambia después de creada
+ * y puede compartirse entre hilos
+ * @author Mario
+ */
+public final class Template8583
+{
+	private final byte[] message;				// Mensaje armado
+	private final FieldPatch8583[] slots;		// Campos variables según su posición, null si el campo es constante
+
+	/**
+	 * Constructor. El procesador se arma una vez y no se modifica, los campos variables deben tener datos en él
+	 * (su valor queda como valor inicial de las copias)
+	 * @param template Procesador modelo
+	 * @param slots Campos variables, de largo fijo
+	 */
+	public Template8583(Proc8583 template, EField... slots)
+	{
+		super();
+		message = template.BuilISO8583();
+		this.slots = new FieldPatch8583[Proc8583.FIELDS];
+		for(EField slot : slots)
+		{
+			FieldPatch8583 patch = new FieldPatch8583(template, slot);
+			if(patch.getOffset() >= 0)
+			{
+				this.slots[slot.index()] = patch;
+			}
+		}
+	}
+
+	/**
+	 * Obtener una copia del mensaje con los valores iniciales de los campos variables
+	 * @return Mensaje ISO-8583
+	 */
+	public byte[] newMessage()
+	{
+		return message.clone();
+	}
+
+	/**
+	 * Copiar el mensaje con los valores iniciales de los campos variables en un array a partir de la posición
+	 * indicada. Si el mensaje no entra en el espacio restante no se escribe nada
+	 * @param dest Array de destino
+	 * @param offset Posición de inicio del mensaje
+	 * @return Cantidad de bytes escritos, 0 si no hay lugar en el array
+	 */
+	public int newMessage(byte[] dest, int offset)
+	{
+		if(dest.length - offset < message.length)
+		{
+			Log.err("Buffer to short " + (dest.length - offset) + ", message len " + message.length);
+			return 0;
+		}
+		System.arraycopy(message, 0, dest, offset, message.length);
+		return message.length;
+	}
+
+	/**
+	 * Establecer el valor de un campo variable en una copia del mensaje
+	 * @param dest Array con la copia del mensaje
+	 * @param offset Posición de inicio del mensaje
+	 * @param slot Campo variable
+	 * @param value Valor del campo, se ajusta igual que en setData
+	 * @return true si se escribió, false si el campo no es variable o hay error
+	 */
+	public boolean set(byte[] dest, int offset, EField slot, String value)
+	{
+		FieldPatch8583 patch = getSlot(slot);
+		return (patch != null) && patch.patch(dest, offset, value);
+	}
+
+	/**
+	 * Establecer el valor numérico de un campo variable en una copia del mensaje
+	 * @param dest Array con la copia del mensaje
+	 * @param offset Posición de inicio del mensaje
+	 * @param slot Campo variable
+	 * @param value Valor del campo, no negativo
+	 * @return true si se escribió, false si el campo no es variable o hay error
+	 */
+	public boolean set(byte[] dest, int offset, EField slot, long value)
+	{
+		FieldPatch8583 patch = getSlot(slot);
+		return (patch != null) && patch.patch(dest, offset, value);
+	}
+
+	/**
+	 * Obtener el campo variable
+	 * @param slot ID del campo
+	 * @return Campo variable, null si el campo no es variable
+	 */
+	private FieldPatch8583 getSlot(EField slot)
+	{
+		int index = slot.index();
+		FieldPatch8583 patch = ((index >= 0) && (index < slots.length)) ? slots[index] : null;
+		if(patch == null)
+		{
+			Log.err("Field " + slot + " is not a template slot");
+		}
+		return patch;
+	}
+
+	/**
+	 * Saber si un campo es variable en la plantilla
+	 * @param slot ID del campo
+	 * @return true/false
+	 */
+	public boolean hasSlot(EField slot)
+	{
+		int index = slot.index();
+		return (index >= 0) && (index < slots.length) && (slots[index] != null);
+	}
+
+	/**
+	 * Obtener el largo del mensaje
+	 * @return Largo del mensaje en bytes
+	 */
+	public int getSize()
+	{
+		return message.length;
+	}
+}
@@ -0,0 +1,320 @@
+package tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.mlf.tools.EAlign;
+import com.mlf.tools.iso8583.EDataType;
+import com.mlf.tools.iso8583.EField;
+import com.mlf.tools.iso8583.EFrameHeader;
+import com.mlf.tools.iso8583.ELenType;
+import com.mlf.tools.iso8583.FrameCodec8583;
+import com.mlf.tools.iso8583.IncrementalParser8583;
+import com.mlf.tools.iso8583.Proc8583;
+
+/**
+ * Pruebas de ida y vuelta de los mensajes ISO-8583. El armado de un mensaje parseado, que copia los campos sin
+ * modificar desde el mensaje original, debe dar los mismos bytes que el armado completo de los mismos datos, con
+ * mapa de bits primario y secundario. El parseo incremental y la lectura de mensajes con encabezado deben dar el
+ * mismo resultado recibiendo los bytes de a uno que recibiendo todo junto. Se ejecuta con main y termina con
+ * código 1 si alguna prueba falla
+ * @author Mario
+ */
+public final class RoundTrip8583
+{
+	/** Datos de los campos del mapa primario: número de campo y valor */
+	private static final String[][] PRIMARY = {
+		{"0", "0200"},
+		{"3", "003000"},
+		{"4", "000000001000"},
+		{"11", "000123"},
+		{"35", "4761739001010119D2412201175894725"},
+		{"41", "TERM0001"},
+		{"48", "datos adicionales"},
+		{"55", "9F2608A1B2C3D4E5F607"},
+		{"63", "0102030405"}
+	};
+
+	/** Datos de los campos del mapa secundario */
+	private static final String[][] SECONDARY = {
+		{"70", "301"},
+		{"90", "020000012305101441140000000000000000000000"},
+		{"128", "0011223344556677"}
+	};
+
+	private static int failures;
+
+	private RoundTrip8583()
+	{
+	}
+
+	/**
+	 * Ejecutar las pruebas
+	 * @param args No se usan
+	 * @throws IOException Error en los flujos en memoria
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		for(int secondary = 0; secondary < 2; ++secondary)
+		{
+			String[][] values = values(secondary == 1);
+			byte[] message = build(values);
+			spanRebuild(values, message);
+			incremental(message, EFrameHeader.NONE);
+			incremental(message, EFrameHeader.BINARY_2);
+			frames(message);
+		}
+		System.out.println((failures == 0) ? "OK" : failures + " failed");
+		if(failures > 0)
+		{
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Parsear, modificar un campo y armar de nuevo, comparando con el armado completo de los mismos datos
+	 * @param values Datos de los campos
+	 * @param message Mensaje armado con esos datos
+	 */
+	private static void spanRebuild(String[][] values, byte[] message)
+	{
+		Proc8583 proc = config();
+		proc.ParseISO8583(message);
+		check(Arrays.equals(proc.BuilISO8583(), message), "rebuild without changes");
+
+		// Mismo largo, campo en medio del mensaje
+		proc.ParseISO8583(message);
+		proc.setData(EField.TERMINAL_ID, "TERM0002");
+		check(Arrays.equals(proc.BuilISO8583(), build(with(values, "41", "TERM0002"))), "rebuild fixed field");
+
+		// Otro largo, los campos siguientes se corren
+		proc.ParseISO8583(message);
+		proc.setData(EField.ADDITIONAL_DATA_48, "otros datos adicionales mas largos");
+		check(Arrays.equals(proc.BuilISO8583(), build(with(values, "48", "otros datos adicionales mas largos"))),
+			"rebuild variable field");
+
+		// Campo quitado
+		proc.ParseISO8583(message);
+		proc.getField(EField.TRACE_NUMBER).clearData();
+		check(Arrays.equals(proc.BuilISO8583(), build(with(values, "11", null))), "rebuild removed field");
+
+		// Campo agregado
+		proc.ParseISO8583(message);
+		proc.setData(EField.RESPONSE_CODE, "05");
+		check(Arrays.equals(proc.BuilISO8583(), build(with(values, "39", "05"))), "rebuild added field");
+	}
+
+	/**
+	 * Parseo incremental de tres mensajes seguidos, recibidos de a un byte y todos juntos
+	 * @param message Mensaje
+	 * @param header Encabezado de largo
+	 */
+	private static void incremental(byte[] message, EFrameHeader header)
+	{
+		byte[] stream = stream(message, header, 3);
+		List<byte[]> whole = feed(stream, header, stream.length);
+		List<byte[]> single = feed(stream, header, 1);
+		check(whole.size() == 3, "incremental " + header + " whole count " + whole.size());
+		check(single.size() == 3, "incremental " + header + " byte count " + single.size());
+		for(int i = 0; (i < whole.size()) && (i < single.size()); ++i)
+		{
+			check(Arrays.equals(whole.get(i), message) && Arrays.equals(single.get(i), message),
+				"incremental " + header + " message " + i);
+		}
+	}
+
+	/**
+	 * Entregar un flujo al parser incremental en partes
+	 * @param stream Bytes del flujo
+	 * @param header Encabezado de largo
+	 * @param step Bytes por parte
+	 * @return Mensajes obtenidos, armados de nuevo
+	 */
+	private static List<byte[]> feed(byte[] stream, EFrameHeader header, int step)
+	{
+		IncrementalParser8583 parser = new IncrementalParser8583(config().getSpec(), header);
+		List<byte[]> out = new ArrayList<>();
+		for(int pos = 0; pos < stream.length; pos += step)
+		{
+			ByteBuffer buffer = ByteBuffer.wrap(stream, pos, Math.min(step, stream.length - pos));
+			Proc8583 proc;
+			while((proc = parser.feed(buffer)) != null)
+			{
+				out.add(proc.BuilISO8583());
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Escritura y lectura de mensajes con encabezado, leyendo de a un byte y todo junto
+	 * @param message Mensaje
+	 * @throws IOException Error en los flujos en memoria
+	 */
+	private static void frames(byte[] message) throws IOException
+	{
+		FrameCodec8583 writer = new FrameCodec8583(EFrameHeader.ASCII_4);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Proc8583 proc = config();
+		proc.ParseISO8583(message);
+		for(int i = 0; i < 3; ++i)
+		{
+			writer.writeFrame(out, proc);
+		}
+		check(Arrays.equals(out.toByteArray(), stream(message, EFrameHeader.ASCII_4, 3)), "frame write");
+		for(int step = 0; step < 2; ++step)
+		{
+			InputStream in = new ByteArrayInputStream(out.toByteArray());
+			if(step == 1)
+			{
+				in = new OneByte(in);
+			}
+			FrameCodec8583 reader = new FrameCodec8583(EFrameHeader.ASCII_4);
+			int count = 0;
+			while(reader.readFrame(in) > 0)
+			{
+				Proc8583 read = config();
+				check(reader.parseFrame(read).length > 0 && Arrays.equals(read.BuilISO8583(), message),
+					"frame read " + step + " message " + count);
+				++count;
+			}
+			check(count == 3, "frame read " + step + " count " + count);
+		}
+	}
+
+	/**
+	 * Configuración de los campos
+	 * @return Procesador configurado
+	 */
+	private static Proc8583 config()
+	{
+		Proc8583 proc = new Proc8583();
+		proc.setConfig(EField.MTI, EDataType.BCD, EAlign.RIGHT, ELenType.FL, 4, '0');
+		proc.setConfig(EField.BITMAP, EDataType.BINARY, EAlign.RIGHT, ELenType.FL, 8, '0');
+		proc.setConfig(3, EDataType.BCD, EAlign.RIGHT, ELenType.FL, 6, '0');
+		proc.setConfig(4, EDataType.BCD, EAlign.RIGHT, ELenType.FL, 12, '0');
+		proc.setConfig(11, EDataType.BCD, EAlign.RIGHT, ELenType.FL, 6, '0');
+		proc.setConfig(35, EDataType.TRACK, EAlign.LEFT, ELenType.L2B, 37, 'F');
+		proc.setConfig(39, EDataType.TEXT, EAlign.LEFT, ELenType.FL, 2, ' ');
+		proc.setConfig(41, EDataType.TEXT, EAlign.LEFT, ELenType.FL, 8, ' ');
+		proc.setConfig(48, EDataType.TEXT, EAlign.LEFT, ELenType.L3B, 999, ' ');
+		proc.setConfig(55, EDataType.BINARY, EAlign.LEFT, ELenType.L3B, 999, '0');
+		proc.setConfig(63, EDataType.BINARY, EAlign.LEFT, ELenType.L3B, 999, '0');
+		proc.setConfig(70, EDataType.BCD, EAlign.RIGHT, ELenType.FL, 3, '0');
+		proc.setConfig(90, EDataType.BCD, EAlign.RIGHT, ELenType.FL, 42, '0');
+		proc.setConfig(128, EDataType.BINARY, EAlign.LEFT, ELenType.FL, 8, '0');
+		return proc;
+	}
+
+	/**
+	 * Armar un mensaje completo en un procesador nuevo
+	 * @param values Datos de los campos, los valores null se omiten
+	 * @return Mensaje
+	 */
+	private static byte[] build(String[][] values)
+	{
+		Proc8583 proc = config();
+		for(String[] value : values)
+		{
+			if(value[1] != null)
+			{
+				proc.setData(EField.fromNumber(Integer.parseInt(value[0])), value[1]);
+			}
+		}
+		return proc.BuilISO8583();
+	}
+
+	/**
+	 * Obtener los datos de los campos
+	 * @param secondary Incluir los campos del mapa secundario
+	 * @return Datos de los campos
+	 */
+	private static String[][] values(boolean secondary)
+	{
+		if(!secondary)
+		{
+			return PRIMARY;
+		}
+		String[][] values = Arrays.copyOf(PRIMARY, PRIMARY.length + SECONDARY.length);
+		System.arraycopy(SECONDARY, 0, values, PRIMARY.length, SECONDARY.length);
+		return values;
+	}
+
+	/**
+	 * Obtener los datos de los campos con un campo cambiado, agregado o quitado
+	 * @param values Datos de los campos
+	 * @param number Número de campo
+	 * @param value Valor nuevo, null para quitar el campo
+	 * @return Datos de los campos
+	 */
+	private static String[][] with(String[][] values, String number, String value)
+	{
+		String[][] result = Arrays.copyOf(values, values.length + 1);
+		result[values.length] = new String[] {number, value};
+		for(int i = 0; i < values.length; ++i)
+		{
+			if(values[i][0].equals(number))
+			{
+				result[i] = new String[] {number, null};
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Armar un flujo con varias copias de un mensaje, cada una precedida por su encabezado de largo
+	 * @param message Mensaje
+	 * @param header Encabezado de largo
+	 * @param count Cantidad de copias
+	 * @return Bytes del flujo
+	 */
+	private static byte[] stream(byte[] message, EFrameHeader header, int count)
+	{
+		int frame = header.size() + message.length;
+		byte[] stream = new byte[count*frame];
+		for(int i = 0; i < count; ++i)
+		{
+			header.encode(message.length, stream, i*frame);
+			System.arraycopy(message, 0, stream, i*frame + header.size(), message.length);
+		}
+		return stream;
+	}
+
+	private static void check(boolean condition, String name)
+	{
+		if(!condition)
+		{
+			++failures;
+			System.out.println("FAIL " + name);
+		}
+	}
+
+	/** Flujo que entrega de a un byte por lectura */
+	private static final class OneByte extends InputStream
+	{
+		private final InputStream in;
+
+		OneByte(InputStream in)
+		{
+			this.in = in;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			return in.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			return in.read(b, off, Math.min(len, 1));
+		}
+	}
+}